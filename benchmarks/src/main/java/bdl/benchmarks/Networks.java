@@ -0,0 +1,100 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.benchmarks;
+
+import bdl.ComputeEngine;
+import bdl.Network;
+import bdl.NetworkDescriptor;
+import bdl.Precision;
+import bdl.activationFunctions.SigmoidFunction;
+import java.util.Random;
+
+/**
+ * Builds the networks and data used by the benchmarks. Every hidden layer and 
+ * the output layer are width nodes wide, and all weights, biases and data 
+ * come from a fixed seed so every run measures the same work.
+ * 
+ * @author chuckwolber
+ */
+final class Networks
+{
+    private static final long SEED = 20170101L;
+    
+    static final String FLAT_VECTORIZED = "FLAT_VECTORIZED";
+    static final String FLAT_FLOAT = "FLAT_FLOAT";
+    
+    private Networks() {
+    }
+    
+    /**
+     * engine is a ComputeEngine name, FLAT_VECTORIZED for the FLAT engine 
+     * with vectorized kernels, or FLAT_FLOAT for that with single precision 
+     * weights.
+     * 
+     * The learning rate is tiny so repeated updateWeights() calls leave the 
+     * network, and therefore the work being measured, essentially unchanged.
+     */
+    static Network build(String engine, int depth, int width) {
+        NetworkDescriptor nd = new NetworkDescriptor();
+        if (engine.equals(FLAT_VECTORIZED)) {
+            nd.setComputeEngine(ComputeEngine.FLAT);
+            nd.setVectorizedKernels(true);
+        } else if (engine.equals(FLAT_FLOAT)) {
+            nd.setComputeEngine(ComputeEngine.FLAT);
+            nd.setVectorizedKernels(true);
+            nd.setPrecision(Precision.FLOAT);
+        } else {
+            nd.setComputeEngine(ComputeEngine.valueOf(engine));
+        }
+        nd.setLayers(depth);
+        nd.setNodesPerLayer(width);
+        nd.setOutputNodes(width);
+        nd.setLearningRate(1e-6);
+        nd.setActivationFunction(new SigmoidFunction());
+        Network network = new Network(nd);
+        network.setParameters(parameters(network.parameterCount(), width));
+        return network;
+    }
+    
+    /**
+     * Uniform in ±1/sqrt(width), the range Network draws its own starting 
+     * weights from when every layer is width nodes wide.
+     */
+    private static double[] parameters(int count, int width) {
+        Random random = new Random(SEED + width);
+        double max = 1.0 / Math.sqrt(width);
+        double[] parameters = new double[count];
+        for (int k=0; k<count; k++)
+            parameters[k] = (2.0*random.nextDouble() - 1.0) * max;
+        return parameters;
+    }
+    
+    static double[][] samples(int rows, int width) {
+        Random random = new Random(SEED + rows*31 + width);
+        double[][] samples = new double[rows][width];
+        for (double[] sample : samples)
+            for (int i=0; i<width; i++)
+                sample[i] = random.nextDouble();
+        return samples;
+    }
+}
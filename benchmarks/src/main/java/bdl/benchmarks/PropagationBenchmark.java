@@ -0,0 +1,100 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.benchmarks;
+
+import bdl.Network;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times each phase of a single training step on its own, and the complete 
+ * per-sample step as written in examples.XOR. The network is primed with one 
+ * complete step during setup, so every phase has valid state to work from.
+ * 
+ * @author chuckwolber
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PropagationBenchmark
+{
+    @Param({"OBJECT_GRAPH", "FLAT", Networks.FLAT_VECTORIZED, Networks.FLAT_FLOAT})
+    public String engine;
+    
+    @Param({"3", "5", "8"})
+    public int depth;
+    
+    @Param({"2", "16", "128", "512", "1024"})
+    public int width;
+    
+    private Network _network;
+    private double[] _input;
+    private double[] _target;
+    
+    @Setup
+    public void setUp() {
+        _network = Networks.build(engine, depth, width);
+        _input = Networks.samples(1, width)[0];
+        _target = Networks.samples(2, width)[1];
+        trainingStep();
+    }
+    
+    @Benchmark
+    public void forwardPropagate() {
+        _network.forwardPropagate();
+    }
+    
+    @Benchmark
+    public void backwardPropagate() {
+        _network.backwardPropagate();
+    }
+    
+    @Benchmark
+    public void updateWeights() {
+        _network.updateWeights();
+    }
+    
+    @Benchmark
+    public double trainingStep() {
+        _network.setInput(_input);
+        _network.forwardPropagate();
+        double error = _network.currentError(_target);
+        _network.calculateErrorRate(_target);
+        _network.backwardPropagate();
+        _network.updateWeights();
+        return error;
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.benchmarks;
+
+import bdl.Network;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Times complete mini-batch training steps. Each operation is one 
+ * Network.trainBatch() call, so the score is the time per batch of batchSize
+ * samples.
+ * 
+ * @author chuckwolber
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TrainingBenchmark
+{
+    @Param({"OBJECT_GRAPH", "FLAT", Networks.FLAT_VECTORIZED, Networks.FLAT_FLOAT})
+    public String engine;
+    
+    @Param({"3", "5"})
+    public int depth;
+    
+    @Param({"2", "16", "128", "512", "1024"})
+    public int width;
+    
+    @Param({"1", "32", "256"})
+    public int batchSize;
+    
+    private Network _network;
+    private double[][] _inputs;
+    private double[][] _targets;
+    
+    @Setup
+    public void setUp() {
+        _network = Networks.build(engine, depth, width);
+        _inputs = Networks.samples(batchSize, width);
+        _targets = Networks.samples(batchSize + 1, width);
+    }
+    
+    @Benchmark
+    public double trainBatch() {
+        return _network.trainBatch(_inputs, _targets, 0, batchSize);
+    }
+}
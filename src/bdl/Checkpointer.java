@@ -0,0 +1,318 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.optimizers.Optimizer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A TrainingListener that saves a checkpoint at every report, without making 
+ * the Trainer wait for the disk.
+ * 
+ * At each report the training thread copies the parameter vector and the 
+ * Optimizer's state into one of two snapshot buffers, which takes about as 
+ * long as copying the arrays, and hands it to a background thread. The 
+ * background thread writes it to a temporary file and then moves it over 
+ * the checkpoint, so the file on disk is always a complete checkpoint, even 
+ * if the JVM dies part way through a write. If a report comes while the 
+ * previous snapshot is still being written, the new snapshot goes in the 
+ * other buffer, replacing any snapshot already waiting there, so training 
+ * never waits and the newest snapshot is always the next one written.
+ * 
+ * restore() loads a checkpoint back into the Network and Optimizer, and 
+ * returns how many epochs it had completed, so the caller can train the rest:
+ * 
+ *   try (Checkpointer checkpoints = new Checkpointer(network, path)) {
+ *       int completed = Files.exists(path) ? checkpoints.restore() : 0;
+ *       trainer.addListener(checkpoints);
+ *       trainer.train(inputs, targets, epochs - completed);
+ *   }
+ * 
+ * Resumed training continues exactly as if it had never stopped, provided 
+ * the samples are presented in the same order. That includes the weights 
+ * Network.prune() removed, which stay at zero. The file is little endian 
+ * and laid out as follows:
+ * 
+ *   int       magic number, "BDLC"
+ *   int       format version
+ *   int       epochs completed
+ *   long      optimizer steps taken
+ *   int       number of parameters, P
+ *   int       number of optimizer state values, S
+ *   int       number of pruned weights, M
+ *   double[P] parameters, in the order of Network.getParameters()
+ *   double[S] optimizer state, in the order of Optimizer.getState()
+ *   int[M]    indices of the pruned weights, in the order of 
+ *             Network.getWeights()
+ *   int       CRC32 of everything above
+ * 
+ * @author chuckwolber
+ */
+public class Checkpointer implements TrainingListener, AutoCloseable
+{
+    private static final int MAGIC = 0x42444C43;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int CHUNK_DOUBLES = 8192;
+    
+    private final Network _network;
+    private final Optimizer _optimizer;
+    private final Path _path;
+    private final Path _temporary;
+    private final Snapshot[] _buffers = new Snapshot[2];
+    private final Thread _writer;
+    
+    /*
+     * Guarded by this. _pending is the snapshot waiting to be written and 
+     * _writing the one being written; either may be null.
+     */
+    private Snapshot _pending;
+    private Snapshot _writing;
+    private IOException _failure;
+    private boolean _closed;
+    private long _written;
+    
+    private int _epochOffset;
+    
+    private static class Snapshot
+    {
+        int epochs;
+        long steps;
+        int[] pruned;
+        final double[] parameters;
+        final double[] state;
+        
+        Snapshot(int parameters, int state) {
+            this.parameters = new double[parameters];
+            this.state = new double[state];
+        }
+    }
+    
+    public Checkpointer(Network network, Path path) {
+        _network = network;
+        _optimizer = network.optimizer();
+        _path = path;
+        _temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        for (int b=0; b<_buffers.length; b++)
+            _buffers[b] = new Snapshot(network.parameterCount(), _optimizer.stateSize());
+        _writer = new Thread(this::writeSnapshots, "bdl-checkpoint");
+        _writer.setDaemon(true);
+        _writer.start();
+    }
+    
+    /**
+     * Takes a snapshot on the training thread and queues it to be written.
+     * Epochs are counted from the start of training, including any epochs 
+     * completed before the checkpoint given to restore().
+     */
+    @Override
+    public void epochCompleted(TrainingMetrics metrics) {
+        synchronized (this) {
+            if (_closed)
+                return;
+            Snapshot snapshot = _pending;
+            if (snapshot == null)
+                snapshot = _buffers[0] == _writing ? _buffers[1] : _buffers[0];
+            snapshot.epochs = _epochOffset + metrics.epoch() + 1;
+            snapshot.steps = _optimizer.steps();
+            _network.getParameters(snapshot.parameters);
+            _optimizer.getState(snapshot.state);
+            snapshot.pruned = _network.prunedWeights();
+            _pending = snapshot;
+            notifyAll();
+        }
+    }
+    
+    /**
+     * The number of checkpoints written so far. Snapshots that were replaced 
+     * by newer ones before they could be written are not counted.
+     */
+    public synchronized long checkpointsWritten() {
+        return _written;
+    }
+    
+    /**
+     * Loads the checkpoint into the Network and its Optimizer and returns the 
+     * number of epochs it had completed.
+     */
+    public int restore() throws IOException {
+        try (FileChannel channel = FileChannel.open(_path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE)
+                throw new IOException(_path + " is too large to map");
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            
+            if (length < HEADER_BYTES + 4 || map.getInt() != MAGIC)
+                throw new IOException(_path + " is not a checkpoint");
+            int version = map.getInt();
+            if (version != VERSION)
+                throw new IOException(_path + " has unsupported version " + version);
+            
+            CRC32 crc = new CRC32();
+            ByteBuffer body = map.duplicate();
+            body.position(0).limit((int)length - 4);
+            crc.update(body);
+            if ((int)crc.getValue() != map.getInt((int)length - 4))
+                throw new IOException(_path + " failed its checksum");
+            
+            int epochs = map.getInt();
+            long steps = map.getLong();
+            double[] parameters = new double[map.getInt()];
+            double[] state = new double[map.getInt()];
+            int[] pruned = new int[map.getInt()];
+            if (parameters.length != _network.parameterCount() || state.length != _optimizer.stateSize())
+                throw new IOException(_path + " was saved from a different network or optimizer");
+            if (length != map.position() + 8L*(parameters.length + state.length) + 4L*pruned.length + 4)
+                throw new IOException(_path + " is truncated");
+            ByteBuffer data = map.slice().order(ByteOrder.LITTLE_ENDIAN);
+            DoubleBuffer values = data.asDoubleBuffer();
+            values.get(parameters);
+            values.get(state);
+            data.position(8*values.position());
+            data.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(pruned);
+            
+            synchronized (this) {
+                _network.setParameters(parameters);
+                _network.setPrunedWeights(pruned.length == 0 ? null : pruned);
+                _optimizer.setState(state, steps);
+                _epochOffset = epochs;
+            }
+            return epochs;
+        }
+    }
+    
+    /**
+     * Waits for the newest snapshot to be written, then stops the background 
+     * thread. Throws the first error the background thread had writing.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            _closed = true;
+            notifyAll();
+        }
+        try {
+            _writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (_failure != null)
+                throw _failure;
+        }
+    }
+    
+    private void writeSnapshots() {
+        while (true) {
+            Snapshot snapshot;
+            synchronized (this) {
+                while (_pending == null && !_closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (_pending == null)
+                    return;
+                snapshot = _pending;
+                _pending = null;
+                _writing = snapshot;
+            }
+            IOException failure = null;
+            try {
+                write(snapshot);
+            } catch (IOException e) {
+                failure = e;
+            }
+            synchronized (this) {
+                _writing = null;
+                if (failure == null)
+                    _written++;
+                else if (_failure == null)
+                    _failure = failure;
+            }
+        }
+    }
+    
+    private void write(Snapshot snapshot) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(snapshot.epochs);
+        header.putLong(snapshot.steps);
+        header.putInt(snapshot.parameters.length);
+        header.putInt(snapshot.state.length);
+        int[] pruned = snapshot.pruned == null ? new int[0] : snapshot.pruned;
+        header.putInt(pruned.length);
+        header.flip();
+        
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(_temporary, StandardOpenOption.CREATE, 
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(channel, header, crc);
+            ByteBuffer chunk = ByteBuffer.allocateDirect(8*CHUNK_DOUBLES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            write(channel, chunk, snapshot.parameters, crc);
+            write(channel, chunk, snapshot.state, crc);
+            ByteBuffer indices = ByteBuffer.allocate(4*pruned.length).order(ByteOrder.LITTLE_ENDIAN);
+            indices.asIntBuffer().put(pruned);
+            write(channel, indices, crc);
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int)crc.getValue());
+            trailer.flip();
+            while (trailer.hasRemaining())
+                channel.write(trailer);
+            channel.force(false);
+        }
+        Files.move(_temporary, _path, StandardCopyOption.REPLACE_EXISTING, 
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static void write(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+    
+    private static void write(FileChannel channel, ByteBuffer chunk, double[] values, CRC32 crc) throws IOException {
+        for (int offset=0; offset<values.length; offset+=CHUNK_DOUBLES) {
+            int count = Math.min(CHUNK_DOUBLES, values.length - offset);
+            chunk.clear();
+            chunk.asDoubleBuffer().put(values, offset, count);
+            chunk.limit(8*count);
+            write(channel, chunk, crc);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.data.Batch;
+import bdl.data.BatchPrefetcher;
+import bdl.data.DataSource;
+import bdl.optimizers.Optimizer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Trains a FLAT Network on several samples at once. Each mini-batch is cut into
+ * one shard per worker in a ForkJoinPool. Every worker runs its samples through
+ * its own FlatWorkspace against the shared weights, and once all shards are 
+ * done the per-worker ∂E/∂w sums are added together and applied as a single 
+ * averaged update, just like Network.trainBatch().
+ * 
+ * The shards and the order in which their sums are added depend only on the 
+ * pool's parallelism, so results are repeatable for a given pool size. They 
+ * can differ from Network.trainBatch() in the last few bits, because the sums 
+ * are added up in a different order.
+ * 
+ * @author chuckwolber
+ */
+public class DataParallelTrainer
+{
+    private static final int REDUCE_GRAIN = 4096;
+    
+    private final Network _network;
+    private final ArrayList<Layer> _layers;
+    private final ExecutionPlan _plan;
+    private final Optimizer _optimizer;
+    private final ForkJoinPool _pool;
+    private final FlatWorkspace[] _workspaces;
+    private final double[] _errors;
+    
+    public DataParallelTrainer(Network network) {
+        this(network, ForkJoinPool.commonPool());
+    }
+    
+    public DataParallelTrainer(Network network, ForkJoinPool pool) {
+        if (network.descriptor().computeEngine() != ComputeEngine.FLAT)
+            throw new IllegalArgumentException("DataParallelTrainer requires ComputeEngine.FLAT");
+        _network = network;
+        _layers = network.layers();
+        _plan = network.plan();
+        _optimizer = network.optimizer();
+        _pool = pool;
+        _workspaces = new FlatWorkspace[pool.getParallelism()];
+        for (int s=0; s<_workspaces.length; s++)
+            _workspaces[s] = new FlatWorkspace(_layers, _plan);
+        _errors = new double[_workspaces.length];
+    }
+    
+    /**
+     * See Network.trainBatch().
+     */
+    public double trainBatch(double[][] inputs, double[][] targets) {
+        return trainBatch(inputs, targets, 0, inputs.length);
+    }
+    
+    /**
+     * See Network.trainBatch().
+     */
+    public double trainBatch(double[][] inputs, double[][] targets, int from, int to) {
+        if (inputs.length != targets.length || from >= to)
+            return -1.0;
+        int batchSize = to - from;
+        int shards = Math.min(_workspaces.length, batchSize);
+        _pool.invoke(new RangeTask((first, last) -> {
+            for (int s=first; s<last; s++) {
+                int shardFrom = from + (int)((long)batchSize*s/shards);
+                int shardTo = from + (int)((long)batchSize*(s+1)/shards);
+                double error = 0.0;
+                for (int k=shardFrom; k<shardTo; k++)
+                    error += _workspaces[s].train(inputs[k], targets[k]);
+                _errors[s] = error;
+            }
+        }, 0, shards, 1));
+        
+        _optimizer.beginStep();
+        for (int l=1; l<_layers.size(); l++)
+            reduceAndUpdate(l, shards, batchSize);
+        _network.applyPruning();
+        
+        double error = 0.0;
+        for (int s=0; s<shards; s++)
+            error += _errors[s];
+        return error;
+    }
+    
+    /**
+     * See Network.fit().
+     */
+    public double fit(double[][] inputs, double[][] targets, int batchSize, int epochs) {
+        if (inputs.length != targets.length || batchSize < 1)
+            return -1.0;
+        double error = 0.0;
+        for (int epoch=0; epoch<epochs; epoch++) {
+            error = 0.0;
+            for (int from=0; from<inputs.length; from+=batchSize)
+                error += trainBatch(inputs, targets, from, 
+                        Math.min(from + batchSize, inputs.length));
+        }
+        return error;
+    }
+    
+    /**
+     * See Network.fit(DataSource, int, int).
+     */
+    public double fit(DataSource source, int batchSize, int epochs) throws IOException {
+        double error = 0.0;
+        try (BatchPrefetcher batches = new BatchPrefetcher(source, batchSize, 
+                BatchPrefetcher.DEFAULT_BUFFERS, epochs)) {
+            for (int epoch=0; epoch<epochs; epoch++) {
+                error = 0.0;
+                Batch batch;
+                while ((batch = batches.next()) != null)
+                    error += trainBatch(batch.inputs(), batch.targets(), 0, batch.size());
+            }
+        }
+        return error;
+    }
+    
+    /**
+     * Adds every shard's ∂E/∂w sums into the first shard's, then applies them. 
+     * Both steps are split across the pool by weight index.
+     */
+    private void reduceAndUpdate(int layerIndex, int shards, int batchSize) {
+        FlatLayer layer = (FlatLayer)_layers.get(layerIndex);
+        double[] total = _workspaces[0].dEdwSum(layerIndex);
+        _pool.invoke(new RangeTask((first, last) -> {
+            for (int s=1; s<shards; s++) {
+                double[] dEdwSum = _workspaces[s].dEdwSum(layerIndex);
+                for (int k=first; k<last; k++) {
+                    total[k] += dEdwSum[k];
+                    dEdwSum[k] = 0.0;
+                }
+            }
+            layer.updateWeights(total, first, last, batchSize);
+        }, 0, _plan.weightCount(layerIndex), REDUCE_GRAIN));
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.activationFunctions.ActivationFunction;
+
+/**
+ * A fully connected InferenceLayer. Weights are ordered the same way as in a 
+ * FlatLayer: w[j*outputs + i] connects input j to output i.
+ * 
+ * @author chuckwolber
+ */
+class DenseInferenceLayer extends InferenceLayer
+{
+    private final int _inputs;
+    private final int _outputs;
+    private final double[] _w;
+    private final double[] _b;
+    private final ActivationFunction _function;
+    
+    /**
+     * How many rows share each pass over the weights in the batched forward().
+     */
+    private static final int ROW_BLOCK = 8;
+    
+    DenseInferenceLayer(int inputs, int outputs, double[] w, double[] b, ActivationFunction function) {
+        _inputs = inputs;
+        _outputs = outputs;
+        _w = w;
+        _b = b;
+        _function = function;
+    }
+    
+    @Override
+    int inputs() {
+        return _inputs;
+    }
+    
+    @Override
+    int outputs() {
+        return _outputs;
+    }
+    
+    @Override
+    long parameterBytes() {
+        return 8L*(_w.length + _b.length);
+    }
+    
+    @Override
+    void forward(double[] in, int inOffset, double[] out, int outOffset, int[] intScratch) {
+        for (int i=0; i<_outputs; i++)
+            out[outOffset + i] = 0.0;
+        for (int j=0; j<_inputs; j++) {
+            double y = in[inOffset + j];
+            int row = j*_outputs;
+            for (int i=0; i<_outputs; i++)
+                out[outOffset + i] += _w[row + i] * y;
+        }
+        for (int i=0; i<_outputs; i++)
+            out[outOffset + i] += _b[i];
+        _function.evalFunction(out, out, outOffset, outOffset + _outputs);
+    }
+    
+    /**
+     * Works through the rows a block at a time. Each row of weights is read 
+     * once per block instead of once per row, which turns the batch into 
+     * matrix-matrix work while adding up every output in the same order as 
+     * the single row forward().
+     */
+    @Override
+    void forward(double[] in, int inOffset, double[] out, int outOffset, int rows, int[] intScratch) {
+        for (int first=0; first<rows; first+=ROW_BLOCK) {
+            int last = Math.min(first + ROW_BLOCK, rows);
+            for (int r=first; r<last; r++) {
+                int o = outOffset + r*_outputs;
+                for (int i=0; i<_outputs; i++)
+                    out[o + i] = 0.0;
+            }
+            for (int j=0; j<_inputs; j++) {
+                int row = j*_outputs;
+                for (int r=first; r<last; r++) {
+                    double y = in[inOffset + r*_inputs + j];
+                    int o = outOffset + r*_outputs;
+                    for (int i=0; i<_outputs; i++)
+                        out[o + i] += _w[row + i] * y;
+                }
+            }
+            for (int r=first; r<last; r++) {
+                int o = outOffset + r*_outputs;
+                for (int i=0; i<_outputs; i++)
+                    out[o + i] += _b[i];
+            }
+            _function.evalFunction(out, out, outOffset + first*_outputs, outOffset + last*_outputs);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+/**
+ * The shape of a Network, worked out once when the Network is built: how 
+ * wide each layer is, where each layer's block of weights and biases starts 
+ * in the flat order used by Network.weights() and NetworkDescriptor.setBiases().
+ * Everything that copies, saves, freezes or trains the whole Network reads 
+ * these instead of walking the layers to work them out again.
+ * 
+ * Layer 0 is the input layer, which has no incoming weights or biases. The 
+ * weights coming in to layer l are ordered by node in layer l-1 and then by 
+ * node in layer l.
+ * 
+ * @author chuckwolber
+ */
+final class ExecutionPlan
+{
+    private final int[] _sizes;
+    private final int[] _weightOffsets;
+    private final int[] _biasOffsets;
+    
+    ExecutionPlan(int[] sizes) {
+        if (sizes == null || sizes.length < 2)
+            throw new IllegalArgumentException("A Network needs at least an input and an output layer.");
+        _sizes = sizes.clone();
+        _weightOffsets = new int[sizes.length + 1];
+        _biasOffsets = new int[sizes.length + 1];
+        for (int l=0; l<sizes.length; l++) {
+            if (sizes[l] < 1)
+                throw new IllegalArgumentException("Layer " + l + " has no nodes.");
+            int weights = l == 0 ? 0 : sizes[l-1] * sizes[l];
+            int biases = l == 0 ? 0 : sizes[l];
+            _weightOffsets[l+1] = _weightOffsets[l] + weights;
+            _biasOffsets[l+1] = _biasOffsets[l] + biases;
+        }
+    }
+    
+    int layers() {
+        return _sizes.length;
+    }
+    
+    int size(int layer) {
+        return _sizes[layer];
+    }
+    
+    int[] sizes() {
+        return _sizes.clone();
+    }
+    
+    /**
+     * Where the weights coming in to layer start.
+     */
+    int weightOffset(int layer) {
+        return _weightOffsets[layer];
+    }
+    
+    int weightCount(int layer) {
+        return _weightOffsets[layer+1] - _weightOffsets[layer];
+    }
+    
+    int weightCount() {
+        return _weightOffsets[_sizes.length];
+    }
+    
+    /**
+     * Where layer's biases start. The input layer has none, so layer 1 starts
+     * at 0.
+     */
+    int biasOffset(int layer) {
+        return _biasOffsets[layer];
+    }
+    
+    int biasCount() {
+        return _biasOffsets[_sizes.length];
+    }
+}
@@ -0,0 +1,505 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.activationFunctions.ActivationFunction;
+import bdl.optimizers.Optimizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A Layer that keeps its state in contiguous primitive arrays instead of Node 
+ * and Weight objects.
+ * 
+ * The weights coming in to this layer and the layer's biases are blocks of 
+ * the one parameter array that the Network shares between all of its 
+ * FlatLayers (see Network.parameters()). The weights start at _wOff and are 
+ * ordered by parent node and then by node in this layer, so weight 
+ * _p[_wOff + j*size + i] connects parent node j to node i. This is the same 
+ * order Network.weights() has always used, and it keeps the inner loop of 
+ * every pass walking memory sequentially. The biases start at _bOff.
+ * 
+ * @author chuckwolber
+ */
+class FlatLayer extends Layer
+{
+    final int _size;
+    final ActivationFunction _function;
+    final boolean _vectorized;
+    private final double[] _x;
+    private final double[] _y;
+    private final double[] _delta;
+    private final double[] _dEdy;
+    private double[] _p;
+    int _wOff;
+    int _bOff;
+    int _weightCount;
+    private double[] _dEdw;
+    private int[] _dEdwRows;
+    private int _dEdwRowCount;
+    private boolean _dEdwCurrent;
+    private double[] _dEdwSum;
+    FlatLayer _parent;
+    private boolean _sparse;
+    private int[] _active;
+    private int _activeCount;
+    private FlatLayer _child;
+    
+    FlatLayer(int nodes, ActivationFunction func, boolean vectorized) {
+        _size = nodes;
+        _vectorized = vectorized;
+        _function = func;
+        _x = new double[nodes];
+        _y = new double[nodes];
+        _delta = new double[nodes];
+        _dEdy = new double[nodes];
+    }
+    
+    @Override
+    int size() {
+        return _size;
+    }
+    
+    /**
+     * Points this layer at its blocks of the Network's parameter array. Called
+     * once, after linkToLayer(), for every layer but the input layer.
+     */
+    void bind(double[] parameters, int weightOffset, int biasOffset) {
+        _p = parameters;
+        _wOff = weightOffset;
+        _bOff = biasOffset;
+    }
+    
+    /**
+     * See Weight.initializeWeight().
+     */
+    @Override
+    void initializeWeights() {
+        if (_parent == null)
+            return;
+        double max = 1.0 / (Math.sqrt(_parent.size()));
+        for (int k=_wOff; k<_wOff + _weightCount; k++)
+            if (_p[k] == 0)
+                _p[k] = RandomWeight.INSTANCE.nextDouble(-max, max);
+    }
+    
+    @Override
+    void setInput(double[] inputValues) {
+        if (inputValues.length != _size)
+            return;
+        System.arraycopy(inputValues, 0, _y, 0, _size);
+        _sparse = false;
+    }
+    
+    /**
+     * Keeps _y dense, so anything that reads it still sees the right values, 
+     * but also remembers which entries are non-zero so the next layer can 
+     * visit only those. Only the previous sample's non-zeros need clearing, 
+     * unless the previous sample was dense.
+     */
+    @Override
+    void setInput(int[] indices, double[] values) {
+        if (indices.length != values.length || indices.length > _size)
+            return;
+        if (_sparse)
+            for (int k=0; k<_activeCount; k++)
+                _y[_active[k]] = 0.0;
+        else
+            Arrays.fill(_y, 0.0);
+        if (_active == null)
+            _active = new int[_size];
+        for (int k=0; k<indices.length; k++)
+            _y[indices[k]] = values[k];
+        System.arraycopy(indices, 0, _active, 0, indices.length);
+        _activeCount = indices.length;
+        _sparse = true;
+    }
+    
+    @Override
+    ArrayList<Double> output() {
+        ArrayList<Double> output = new ArrayList<>();
+        for (double y : _y)
+            output.add(y);
+        return output;
+    }
+    
+    @Override
+    void forwardPropagate() {
+        if (_parent == null)
+            return;
+        if (_parent._sparse)
+            forRange(_size, (from, to) -> {
+                forwardPropagate(_parent._active, _parent._activeCount, _parent._y, _x, _y, from, to);
+            });
+        else
+            forRange(_size, (from, to) -> {
+                forwardPropagate(_parent._y, _x, _y, from, to);
+            });
+    }
+    
+    @Override
+    double currentError(double[] expectedValues) {
+        return currentError(_y, expectedValues);
+    }
+    
+    @Override
+    void calculateErrorRate(double[] expectedValues) {
+        calculateErrorRate(_y, expectedValues, _dEdy);
+    }
+    
+    /**
+     * The same calculation as Node.backwardPropagate(), done for the whole 
+     * layer at once. Each node's delta is kept in _delta, where the child 
+     * layer has already left its own by the time this layer runs.
+     */
+    @Override
+    void backwardPropagate() {
+        if (_parent == null)
+            return;
+        if (_child != null)
+            forRange(_size, (from, to) -> {
+                _child.propagateError(_child._delta, _dEdy, from, to);
+            });
+        forRange(_size, (from, to) -> {
+            calculateDeltas(_x, _y, _dEdy, _delta, from, to);
+        });
+        _dEdwCurrent = false;
+    }
+    
+    /**
+     * Fills _dEdw from the deltas left by backwardPropagate(). Only 
+     * updateWeights() needs ∂E/∂w on its own, so it is worked out here, on 
+     * first use, instead of on every backward pass. accumulatedEdw() adds it 
+     * straight into the batch sums instead.
+     */
+    private void calculatedEdw() {
+        if (_dEdw == null)
+            _dEdw = new double[_weightCount];
+        _dEdwCurrent = true;
+        if (_parent._sparse) {
+            sparsedEdw();
+            return;
+        }
+        forRange(_parent._size, (from, to) -> {
+            calculatedEdw(_parent._y, _delta, _dEdw, from, to);
+        });
+        _dEdwRowCount = -1;
+    }
+    
+    /**
+     * Rows of ∂E/∂w for zero inputs are zero, so only the rows for the 
+     * parent's non-zero outputs are written, after clearing whichever rows 
+     * the last pass wrote. _dEdwRows records the rows written, or 
+     * _dEdwRowCount is -1 when every row may hold a value.
+     */
+    private void sparsedEdw() {
+        if (_dEdwRows == null)
+            _dEdwRows = new int[_parent._size];
+        if (_dEdwRowCount < 0)
+            Arrays.fill(_dEdw, 0.0);
+        else
+            for (int k=0; k<_dEdwRowCount; k++)
+                Arrays.fill(_dEdw, _dEdwRows[k]*_size, (_dEdwRows[k]+1)*_size, 0.0);
+        int[] active = _parent._active;
+        int count = _parent._activeCount;
+        forRange(count, (from, to) -> {
+            calculatedEdw(active, _parent._y, _delta, _dEdw, from, to);
+        });
+        System.arraycopy(active, 0, _dEdwRows, 0, count);
+        _dEdwRowCount = count;
+    }
+    
+    @Override
+    void updateWeights() {
+        if (_parent == null)
+            return;
+        if (!_dEdwCurrent)
+            calculatedEdw();
+        forRange(_weightCount, (from, to) -> {
+            updateWeights(_dEdw, from, to);
+        });
+    }
+    
+    @Override
+    void accumulatedEdw() {
+        if (_parent == null)
+            return;
+        int[] active = _parent._sparse ? _parent._active : null;
+        int rows = _parent._sparse ? _parent._activeCount : _parent._size;
+        forRange(rows, (from, to) -> {
+            accumulatedEdw(active, _parent._y, _delta, from, to);
+        });
+    }
+    
+    @Override
+    void updateWeights(int batchSize) {
+        if (_parent == null)
+            return;
+        forRange(_weightCount, (from, to) -> {
+            updateWeights(_dEdwSum, from, to, batchSize);
+        });
+    }
+    
+    @Override
+    ActivationFunction activationFunction() {
+        return _function;
+    }
+    
+    /**
+     * Unlike a NodeLayer, which owns the weights leaving its nodes, a FlatLayer
+     * owns the weights coming in to its nodes. Network walks the layers in 
+     * order, so the input layer copies none and every other layer copies the 
+     * block its parent would have. The overall order is the same.
+     */
+    @Override
+    int getWeights(double[] dest, int offset) {
+        if (_parent == null)
+            return offset;
+        System.arraycopy(_p, _wOff, dest, offset, _weightCount);
+        return offset + _weightCount;
+    }
+    
+    @Override
+    int setWeights(double[] src, int offset) {
+        if (_parent == null)
+            return offset;
+        System.arraycopy(src, offset, _p, _wOff, _weightCount);
+        return offset + _weightCount;
+    }
+    
+    @Override
+    int takedEdwSum(double[] dest, int offset) {
+        if (_parent == null)
+            return offset;
+        System.arraycopy(_dEdwSum, 0, dest, offset, _weightCount);
+        Arrays.fill(_dEdwSum, 0.0);
+        return offset + _weightCount;
+    }
+    
+    @Override
+    int getBiases(double[] dest, int offset) {
+        System.arraycopy(_p, _bOff, dest, offset, _size);
+        return offset + _size;
+    }
+    
+    @Override
+    int setBiases(double[] src, int offset) {
+        System.arraycopy(src, offset, _p, _bOff, _size);
+        return offset + _size;
+    }
+    
+    @Override
+    int weightCount() {
+        return _weightCount;
+    }
+    
+    /*
+     * The methods below do the actual arithmetic. They take the per-sample 
+     * state they work on as arguments, so a FlatWorkspace can run them over 
+     * its own copy of that state while sharing this layer's weights and biases.
+     * The ranged versions let a wide layer split one pass across threads.
+     */
+    
+    void forwardPropagate(double[] parentY, double[] x, double[] y) {
+        forwardPropagate(parentY, x, y, 0, _size);
+    }
+    
+    void forwardPropagate(double[] parentY, double[] x, double[] y, int from, int to) {
+        for (int i=from; i<to; i++)
+            x[i] = 0.0;
+        if (_vectorized)
+            Kernels.multiplyAdd(parentY, parentY.length, _p, _wOff, _size, x, from, to);
+        else
+            for (int j=0; j<parentY.length; j++) {
+                double py = parentY[j];
+                int row = _wOff + j*_size;
+                for (int i=from; i<to; i++)
+                    x[i] += _p[row + i] * py;
+            }
+        for (int i=from; i<to; i++)
+            x[i] += _p[_bOff + i];
+        _function.evalFunction(x, y, from, to);
+    }
+    
+    double currentError(double[] y, double[] expectedValues) {
+        if (expectedValues.length != _size)
+            return -1.0;
+        double currentError = 0.0;
+        for (int i=0; i<_size; i++)
+            currentError += (y[i] - expectedValues[i])*(y[i] - expectedValues[i]);
+        return 0.5*currentError;
+    }
+    
+    void calculateErrorRate(double[] y, double[] expectedValues, double[] dEdy) {
+        if (expectedValues.length != _size)
+            return;
+        for (int i=0; i<_size; i++)
+            dEdy[i] = y[i] - expectedValues[i];
+    }
+    
+    /**
+     * Called on the child layer, since it owns the weights involved. Fills in 
+     * ∂E/∂y for every node in the parent layer.
+     */
+    void propagateError(double[] delta, double[] parentdEdy) {
+        propagateError(delta, parentdEdy, 0, parentdEdy.length);
+    }
+    
+    void propagateError(double[] delta, double[] parentdEdy, int from, int to) {
+        for (int j=from; j<to; j++) {
+            double sum = 0.0;
+            int row = _wOff + j*_size;
+            for (int i=0; i<_size; i++)
+                sum += _p[row + i] * delta[i];
+            parentdEdy[j] = sum;
+        }
+    }
+    
+    /**
+     * delta = f'(x) * ∂E/∂y, once per node. See Node.backwardPropagate().
+     */
+    void calculateDeltas(double[] x, double[] y, double[] dEdy, double[] delta) {
+        calculateDeltas(x, y, dEdy, delta, 0, _size);
+    }
+    
+    void calculateDeltas(double[] x, double[] y, double[] dEdy, double[] delta, int from, int to) {
+        _function.evalFunctionDerivative(x, y, delta, from, to);
+        for (int i=from; i<to; i++)
+            delta[i] *= dEdy[i];
+    }
+    
+    /**
+     * forwardPropagate() for a parent layer whose only non-zero outputs are 
+     * those listed in the first count entries of active. The rows of weights 
+     * for every other output would only add zero, so they are skipped.
+     */
+    void forwardPropagate(int[] active, int count, double[] parentY, double[] x, double[] y, int from, int to) {
+        for (int i=from; i<to; i++)
+            x[i] = 0.0;
+        for (int k=0; k<count; k++) {
+            int j = active[k];
+            double py = parentY[j];
+            int row = _wOff + j*_size;
+            for (int i=from; i<to; i++)
+                x[i] += _p[row + i] * py;
+        }
+        for (int i=from; i<to; i++)
+            x[i] += _p[_bOff + i];
+        _function.evalFunction(x, y, from, to);
+    }
+    
+    void calculatedEdw(double[] parentY, double[] delta, double[] dEdw, int from, int to) {
+        for (int j=from; j<to; j++) {
+            double py = parentY[j];
+            int row = j*_size;
+            for (int i=0; i<_size; i++)
+                dEdw[row + i] = py * delta[i];
+        }
+    }
+    
+    /**
+     * calculatedEdw() for rows active[from] to active[to-1] only.
+     */
+    void calculatedEdw(int[] active, double[] parentY, double[] delta, double[] dEdw, int from, int to) {
+        for (int k=from; k<to; k++) {
+            int j = active[k];
+            double py = parentY[j];
+            int row = j*_size;
+            for (int i=0; i<_size; i++)
+                dEdw[row + i] = py * delta[i];
+        }
+    }
+    
+    /**
+     * Adds one sample's ∂E/∂w for rows from (inclusive) to to (exclusive) to 
+     * the batch sums, working it out on the fly rather than reading it back 
+     * from _dEdw. active lists the rows to visit, or is null for every row.
+     */
+    void accumulatedEdw(int[] active, double[] parentY, double[] delta, int from, int to) {
+        for (int k=from; k<to; k++) {
+            int j = active == null ? k : active[k];
+            double py = parentY[j];
+            int row = j*_size;
+            for (int i=0; i<_size; i++)
+                _dEdwSum[row + i] += py * delta[i];
+        }
+    }
+    
+    void accumulatedEdw(double[] parentY, double[] delta, double[] dEdwSum) {
+        for (int j=0; j<parentY.length; j++) {
+            double py = parentY[j];
+            int row = j*_size;
+            for (int i=0; i<_size; i++)
+                dEdwSum[row + i] += py * delta[i];
+        }
+    }
+    
+    /**
+     * One step of plain gradient descent for one sample, written straight 
+     * into the weights: w -= ∂E/∂w * rate, with ∂E/∂w worked out on the fly 
+     * instead of stored. Rows for inputs of zero would not change, so they 
+     * are skipped. The result is the same as calculatedEdw() followed by 
+     * updateWeights() with an SGDOptimizer.
+     */
+    void descend(double[] parentY, double[] delta, double rate) {
+        for (int j=0; j<parentY.length; j++) {
+            double py = parentY[j];
+            if (py == 0.0)
+                continue;
+            int row = _wOff + j*_size;
+            for (int i=0; i<_size; i++)
+                _p[row + i] -= py * delta[i] * rate;
+        }
+    }
+    
+    /**
+     * Applies one sample's ∂E/∂w to weights from (inclusive) to to (exclusive).
+     */
+    void updateWeights(double[] dEdw, int from, int to) {
+        Optimizer optimizer = optimizer();
+        int offset = weightOffset();
+        for (int k=from; k<to; k++)
+            _p[_wOff + k] -= optimizer.delta(offset + k, dEdw[k]);
+    }
+    
+    /**
+     * Applies the averaged ∂E/∂w to weights from (inclusive) to to (exclusive) 
+     * and clears those entries of dEdwSum for the next batch.
+     */
+    void updateWeights(double[] dEdwSum, int from, int to, int batchSize) {
+        Optimizer optimizer = optimizer();
+        int offset = weightOffset();
+        for (int k=from; k<to; k++) {
+            _p[_wOff + k] -= optimizer.delta(offset + k, dEdwSum[k] / batchSize);
+            dEdwSum[k] = 0.0;
+        }
+    }
+    
+    @Override
+    void linkToLayer(Layer parentLayer) {
+        _parent = (FlatLayer)parentLayer;
+        _parent._child = this;
+        _weightCount = _parent.size() * _size;
+        _dEdwSum = new double[_weightCount];
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import java.util.ArrayList;
+
+/**
+ * Private per-sample state for training a FLAT Network: the values a 
+ * FlatLayer would normally keep in its own arrays, plus a running sum of 
+ * ∂E/∂w for every weight. train() reads the weights and biases from the 
+ * layers and never writes them, so any number of workspaces can train over 
+ * the same layers at the same time. descend() writes the weights as well, 
+ * for HogwildTrainer, whose workers accept each other's interference.
+ * 
+ * @author chuckwolber
+ */
+class FlatWorkspace
+{
+    private final FlatLayer[] _layers;
+    private final double[][] _x;
+    private final double[][] _y;
+    private final double[][] _delta;
+    private final double[][] _dEdy;
+    private final double[][] _dEdwSum;
+    
+    FlatWorkspace(ArrayList<Layer> layers, ExecutionPlan plan) {
+        int count = plan.layers();
+        _layers = new FlatLayer[count];
+        _x = new double[count][];
+        _y = new double[count][];
+        _delta = new double[count][];
+        _dEdy = new double[count][];
+        _dEdwSum = new double[count][];
+        for (int l=0; l<count; l++) {
+            FlatLayer layer = (FlatLayer)layers.get(l);
+            _layers[l] = layer;
+            _x[l] = new double[plan.size(l)];
+            _y[l] = new double[plan.size(l)];
+            _delta[l] = new double[plan.size(l)];
+            _dEdy[l] = new double[plan.size(l)];
+            _dEdwSum[l] = new double[plan.weightCount(l)];
+        }
+    }
+    
+    /**
+     * Runs one sample forward and backward, adding its ∂E/∂w to the running 
+     * sums. Returns the sample's currentError().
+     */
+    double train(double[] input, double[] expectedValues) {
+        int output = _layers.length-1;
+        System.arraycopy(input, 0, _y[0], 0, _y[0].length);
+        for (int l=1; l<=output; l++)
+            _layers[l].forwardPropagate(_y[l-1], _x[l], _y[l]);
+        double error = _layers[output].currentError(_y[output], expectedValues);
+        _layers[output].calculateErrorRate(_y[output], expectedValues, _dEdy[output]);
+        for (int l=output; l>0; l--) {
+            if (l < output)
+                _layers[l+1].propagateError(_delta[l+1], _dEdy[l]);
+            _layers[l].calculateDeltas(_x[l], _y[l], _dEdy[l], _delta[l]);
+            _layers[l].accumulatedEdw(_y[l-1], _delta[l], _dEdwSum[l]);
+        }
+        return error;
+    }
+    
+    /**
+     * Runs one sample forward and backward, then takes a gradient descent 
+     * step for it directly in the layers' weights. Returns the sample's 
+     * currentError(). Every delta is worked out before any weight changes, as 
+     * in train().
+     */
+    double descend(double[] input, double[] expectedValues, double rate) {
+        int output = _layers.length-1;
+        System.arraycopy(input, 0, _y[0], 0, _y[0].length);
+        for (int l=1; l<=output; l++)
+            _layers[l].forwardPropagate(_y[l-1], _x[l], _y[l]);
+        double error = _layers[output].currentError(_y[output], expectedValues);
+        _layers[output].calculateErrorRate(_y[output], expectedValues, _dEdy[output]);
+        for (int l=output; l>0; l--) {
+            if (l < output)
+                _layers[l+1].propagateError(_delta[l+1], _dEdy[l]);
+            _layers[l].calculateDeltas(_x[l], _y[l], _dEdy[l], _delta[l]);
+        }
+        for (int l=1; l<=output; l++)
+            _layers[l].descend(_y[l-1], _delta[l], rate);
+        return error;
+    }
+    
+    double[] dEdwSum(int layer) {
+        return _dEdwSum[layer];
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.activationFunctions.ActivationFunction;
+import bdl.optimizers.Optimizer;
+
+/**
+ * A FlatLayer whose weights and biases are stored as float instead of double,
+ * which halves the memory, and the memory traffic, that a pass over them 
+ * costs. Per-node state, ∂E/∂w and its batch sums stay in double, where long
+ * sums keep their precision. The scalar kernels widen each weight to double 
+ * as they read it and sum in double. The vectorized forward pass narrows its
+ * inputs to float and sums in float instead.
+ * 
+ * The parameters live in _floatParameters, and the double array FlatLayer 
+ * keeps them in is left null. Every FlatLayer method that reads or writes 
+ * parameters is overridden here to work on the float array instead.
+ * 
+ * @author chuckwolber
+ */
+class FloatFlatLayer extends FlatLayer
+{
+    private float[] _floatParameters;
+    
+    FloatFlatLayer(int nodes, ActivationFunction func, boolean vectorized) {
+        super(nodes, func, vectorized);
+    }
+    
+    void bind(float[] parameters, int weightOffset, int biasOffset) {
+        _floatParameters = parameters;
+        bind((double[])null, weightOffset, biasOffset);
+    }
+    
+    @Override
+    void initializeWeights() {
+        if (_parent == null)
+            return;
+        double max = 1.0 / (Math.sqrt(_parent.size()));
+        for (int k=_wOff; k<_wOff + _weightCount; k++)
+            if (_floatParameters[k] == 0)
+                _floatParameters[k] = (float)RandomWeight.INSTANCE.nextDouble(-max, max);
+    }
+    
+    @Override
+    int getWeights(double[] dest, int offset) {
+        if (_parent == null)
+            return offset;
+        for (int k=0; k<_weightCount; k++)
+            dest[offset + k] = _floatParameters[_wOff + k];
+        return offset + _weightCount;
+    }
+    
+    @Override
+    int setWeights(double[] src, int offset) {
+        if (_parent == null)
+            return offset;
+        for (int k=0; k<_weightCount; k++)
+            _floatParameters[_wOff + k] = (float)src[offset + k];
+        return offset + _weightCount;
+    }
+    
+    @Override
+    int getBiases(double[] dest, int offset) {
+        for (int i=0; i<_size; i++)
+            dest[offset + i] = _floatParameters[_bOff + i];
+        return offset + _size;
+    }
+    
+    @Override
+    int setBiases(double[] src, int offset) {
+        for (int i=0; i<_size; i++)
+            _floatParameters[_bOff + i] = (float)src[offset + i];
+        return offset + _size;
+    }
+    
+    @Override
+    void forwardPropagate(double[] parentY, double[] x, double[] y, int from, int to) {
+        for (int i=from; i<to; i++)
+            x[i] = 0.0;
+        if (_vectorized)
+            Kernels.multiplyAdd(parentY, parentY.length, _floatParameters, _wOff, _size, x, from, to);
+        else
+            for (int j=0; j<parentY.length; j++) {
+                double py = parentY[j];
+                int row = _wOff + j*_size;
+                for (int i=from; i<to; i++)
+                    x[i] += _floatParameters[row + i] * py;
+            }
+        for (int i=from; i<to; i++)
+            x[i] += _floatParameters[_bOff + i];
+        _function.evalFunction(x, y, from, to);
+    }
+    
+    @Override
+    void forwardPropagate(int[] active, int count, double[] parentY, double[] x, double[] y, int from, int to) {
+        for (int i=from; i<to; i++)
+            x[i] = 0.0;
+        for (int k=0; k<count; k++) {
+            int j = active[k];
+            double py = parentY[j];
+            int row = _wOff + j*_size;
+            for (int i=from; i<to; i++)
+                x[i] += _floatParameters[row + i] * py;
+        }
+        for (int i=from; i<to; i++)
+            x[i] += _floatParameters[_bOff + i];
+        _function.evalFunction(x, y, from, to);
+    }
+    
+    @Override
+    void propagateError(double[] delta, double[] parentdEdy, int from, int to) {
+        for (int j=from; j<to; j++) {
+            double sum = 0.0;
+            int row = _wOff + j*_size;
+            for (int i=0; i<_size; i++)
+                sum += _floatParameters[row + i] * delta[i];
+            parentdEdy[j] = sum;
+        }
+    }
+    
+    @Override
+    void descend(double[] parentY, double[] delta, double rate) {
+        for (int j=0; j<parentY.length; j++) {
+            double py = parentY[j];
+            if (py == 0.0)
+                continue;
+            int row = _wOff + j*_size;
+            for (int i=0; i<_size; i++)
+                _floatParameters[row + i] = (float)(_floatParameters[row + i] - py * delta[i] * rate);
+        }
+    }
+    
+    @Override
+    void updateWeights(double[] dEdw, int from, int to) {
+        Optimizer optimizer = optimizer();
+        int offset = weightOffset();
+        for (int k=from; k<to; k++)
+            _floatParameters[_wOff + k] = (float)(_floatParameters[_wOff + k] - optimizer.delta(offset + k, dEdw[k]));
+    }
+    
+    @Override
+    void updateWeights(double[] dEdwSum, int from, int to, int batchSize) {
+        Optimizer optimizer = optimizer();
+        int offset = weightOffset();
+        for (int k=from; k<to; k++) {
+            _floatParameters[_wOff + k] = (float)(_floatParameters[_wOff + k] - optimizer.delta(offset + k, dEdwSum[k] / batchSize));
+            dEdwSum[k] = 0.0;
+        }
+    }
+}
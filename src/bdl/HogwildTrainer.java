@@ -0,0 +1,116 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.optimizers.Optimizer;
+import bdl.optimizers.SGDOptimizer;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Trains a FLAT Network with Hogwild (Niu, Recht, Ré and Wright, 2011): 
+ * asynchronous stochastic gradient descent with no locks at all.
+ * 
+ * Each epoch the samples are split into one contiguous shard per thread in 
+ * the pool. Every thread works through its shard with its own FlatWorkspace, 
+ * and after each sample subtracts ∂E/∂w * learning rate straight from the 
+ * Network's shared weights, while the other threads are reading and writing 
+ * them too. Updates from different threads can interleave, and one can 
+ * occasionally overwrite another. Gradient descent tolerates that noise, and 
+ * in return the threads never wait for each other except at the end of an 
+ * epoch. Updates skip the rows of weights whose inputs are zero, so the 
+ * sparser the inputs, the less the threads collide.
+ * 
+ * The weights are plain doubles, or floats with Precision.FLOAT, written with
+ * ordinary stores. Java only promises that a double is written in one piece 
+ * if it is volatile, but 64 bit JVMs write them whole in practice.
+ * 
+ * Stateful optimizers assume that no two threads update the same weight at 
+ * the same time, so Hogwild requires an SGDOptimizer. The learning rate 
+ * schedule advances once per epoch in this mode, not once per update. Weights 
+ * removed by Network.prune() are put back to zero at the end of each epoch.
+ * 
+ * With a pool of one thread and a constant learning rate, training is 
+ * exactly the same as Network.fit() with a batch size of 1.
+ * 
+ * @author chuckwolber
+ */
+public class HogwildTrainer
+{
+    private final Network _network;
+    private final Optimizer _optimizer;
+    private final ForkJoinPool _pool;
+    private final FlatWorkspace[] _workspaces;
+    private final double[] _errors;
+    
+    public HogwildTrainer(Network network) {
+        this(network, ForkJoinPool.commonPool());
+    }
+    
+    public HogwildTrainer(Network network, ForkJoinPool pool) {
+        if (network.descriptor().computeEngine() != ComputeEngine.FLAT)
+            throw new IllegalArgumentException("HogwildTrainer requires ComputeEngine.FLAT");
+        if (!(network.optimizer() instanceof SGDOptimizer))
+            throw new IllegalArgumentException("HogwildTrainer requires an SGDOptimizer");
+        ArrayList<Layer> layers = network.layers();
+        _network = network;
+        _optimizer = network.optimizer();
+        _pool = pool;
+        _workspaces = new FlatWorkspace[pool.getParallelism()];
+        for (int s=0; s<_workspaces.length; s++)
+            _workspaces[s] = new FlatWorkspace(layers, network.plan());
+        _errors = new double[_workspaces.length];
+    }
+    
+    /**
+     * Runs the given number of epochs over the samples. Returns the sum of 
+     * currentError() over the final epoch, each sample's error taken just 
+     * before its own update.
+     */
+    public double fit(double[][] inputs, double[][] targets, int epochs) {
+        if (inputs.length != targets.length || inputs.length == 0)
+            return -1.0;
+        int shards = Math.min(_workspaces.length, inputs.length);
+        double error = 0.0;
+        for (int epoch=0; epoch<epochs; epoch++) {
+            _optimizer.beginStep();
+            double rate = _optimizer.learningRate();
+            _pool.invoke(new RangeTask((first, last) -> {
+                for (int s=first; s<last; s++) {
+                    int from = (int)((long)inputs.length*s/shards);
+                    int to = (int)((long)inputs.length*(s+1)/shards);
+                    double shardError = 0.0;
+                    for (int k=from; k<to; k++)
+                        shardError += _workspaces[s].descend(inputs[k], targets[k], rate);
+                    _errors[s] = shardError;
+                }
+            }, 0, shards, 1));
+            _network.applyPruning();
+            
+            error = 0.0;
+            for (int s=0; s<shards; s++)
+                error += _errors[s];
+        }
+        return error;
+    }
+}
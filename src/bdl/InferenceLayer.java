@@ -0,0 +1,67 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+/**
+ * One layer of an InferenceModel. Implementations hold their parameters in 
+ * final fields that are never written after construction, and keep no other 
+ * state, so forward() may be called from any number of threads at once. Any 
+ * working space a layer needs beyond its output comes from the caller, as 
+ * intScratch.
+ * 
+ * @author chuckwolber
+ */
+abstract class InferenceLayer
+{
+    abstract int inputs();
+    abstract int outputs();
+    
+    /**
+     * The memory taken by the layer's weights and biases.
+     */
+    abstract long parameterBytes();
+    
+    /**
+     * The number of ints forward() needs in intScratch. Most layers need none.
+     */
+    int intScratchSize() {
+        return 0;
+    }
+    
+    /**
+     * Reads inputs() values from in, starting at inOffset, and writes the 
+     * layer's outputs() activations to out, starting at outOffset. intScratch
+     * holds at least intScratchSize() ints.
+     */
+    abstract void forward(double[] in, int inOffset, double[] out, int outOffset, int[] intScratch);
+    
+    /**
+     * The same as forward(), for rows consecutive inputs packed one after 
+     * another in in, writing rows consecutive outputs to out. Layers that can 
+     * do better than one row at a time override this.
+     */
+    void forward(double[] in, int inOffset, double[] out, int outOffset, int rows, int[] intScratch) {
+        for (int r=0; r<rows; r++)
+            forward(in, inOffset + r*inputs(), out, outOffset + r*outputs(), intScratch);
+    }
+}
@@ -0,0 +1,305 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.activationFunctions.ActivationFunction;
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of a trained Network, made by Network.freeze(), that 
+ * only knows how to turn inputs into outputs.
+ * 
+ * Nothing in an InferenceModel changes after it is built, so predict() is 
+ * safe to call from any number of threads at the same time without locking. 
+ * The activation functions are shared with the Network they came from and 
+ * must be stateless, as SigmoidFunction is.
+ * 
+ * predict() needs somewhere to keep the activations of the hidden layers, 
+ * and quantized layers need somewhere to add up their integer sums. Callers 
+ * that manage their own threads can pass in a scratch array of scratchSize() 
+ * doubles and one of intScratchSize() ints and reuse them, which makes a 
+ * prediction completely allocation free. Otherwise each thread is given its 
+ * own scratch arrays the first time it calls predict(), and reuses them 
+ * afterwards. A program that starts a new thread per request (virtual 
+ * threads, for example) pays for those arrays on each new thread, so it 
+ * should prefer the first form.
+ * 
+ * predictBatch() evaluates many rows at once, without boxing, by pushing 
+ * blocks of up to BATCH_ROWS rows through each layer together.
+ * 
+ * @author chuckwolber
+ */
+public final class InferenceModel
+{
+    private final InferenceLayer[] _layers;
+    private final int _scratchSize;
+    private final int _intScratchSize;
+    private final ThreadLocal<double[]> _scratch;
+    private final ThreadLocal<double[]> _batchScratch;
+    private final ThreadLocal<int[]> _intScratch;
+    
+    public static final int BATCH_ROWS = 64;
+    
+    /**
+     * Layers with at least this fraction of their weights at zero, as after 
+     * Network.prune(), are stored as SparseInferenceLayers. Below it, the 
+     * dense layer's simpler loops are faster.
+     */
+    static final double MIN_SPARSITY = 0.5;
+    
+    InferenceModel(InferenceLayer[] layers) {
+        _layers = layers;
+        int widest = 0;
+        int ints = 0;
+        for (InferenceLayer layer : _layers) {
+            widest = Math.max(widest, layer.outputs());
+            ints = Math.max(ints, layer.intScratchSize());
+        }
+        _scratchSize = 2*widest;
+        _intScratchSize = ints;
+        _scratch = ThreadLocal.withInitial(() -> new double[_scratchSize]);
+        _batchScratch = ThreadLocal.withInitial(() -> new double[batchScratchSize()]);
+        _intScratch = ThreadLocal.withInitial(() -> new int[_intScratchSize]);
+    }
+    
+    /**
+     * Builds a model with one InferenceLayer for each layer after the input 
+     * layer: a SparseInferenceLayer if at least MIN_SPARSITY of its weights 
+     * are zero, and a DenseInferenceLayer otherwise. functions has one entry 
+     * per layer, including the input layer, whose function is unused. weights 
+     * and biases are laid out as described by plan.
+     */
+    static InferenceModel build(ExecutionPlan plan, ActivationFunction[] functions, double[] weights, double[] biases) {
+        InferenceLayer[] layers = new InferenceLayer[plan.layers()-1];
+        for (int l=1; l<plan.layers(); l++) {
+            int w = plan.weightOffset(l);
+            int b = plan.biasOffset(l);
+            double[] layerWeights = Arrays.copyOfRange(weights, w, w + plan.weightCount(l));
+            double[] layerBiases = Arrays.copyOfRange(biases, b, b + plan.size(l));
+            if (SparseInferenceLayer.sparsity(layerWeights, 0, layerWeights.length) >= MIN_SPARSITY)
+                layers[l-1] = new SparseInferenceLayer(plan.size(l-1), plan.size(l), 
+                        layerWeights, layerBiases, functions[l]);
+            else
+                layers[l-1] = new DenseInferenceLayer(plan.size(l-1), plan.size(l), 
+                        layerWeights, layerBiases, functions[l]);
+        }
+        return new InferenceModel(layers);
+    }
+    
+    /**
+     * Builds a model of QuantizedInferenceLayers. Each calibration input is 
+     * run through the full precision layers first, to find the largest 
+     * absolute value that reaches each layer, which sets that layer's input 
+     * step. The calibration inputs should be typical of what the model will 
+     * be asked to predict.
+     */
+    static InferenceModel quantize(ExecutionPlan plan, ActivationFunction[] functions, double[] weights, double[] biases, 
+            double[][] calibration) {
+        if (calibration.length == 0)
+            throw new IllegalArgumentException("Quantizing needs at least one calibration input.");
+        InferenceLayer[] dense = new InferenceLayer[plan.layers()-1];
+        double[][] layerWeights = new double[dense.length][];
+        double[][] layerBiases = new double[dense.length][];
+        for (int l=1; l<plan.layers(); l++) {
+            int w = plan.weightOffset(l);
+            int b = plan.biasOffset(l);
+            layerWeights[l-1] = Arrays.copyOfRange(weights, w, w + plan.weightCount(l));
+            layerBiases[l-1] = Arrays.copyOfRange(biases, b, b + plan.size(l));
+            dense[l-1] = new DenseInferenceLayer(plan.size(l-1), plan.size(l), 
+                    layerWeights[l-1], layerBiases[l-1], functions[l]);
+        }
+        
+        double[] ranges = new double[dense.length];
+        double[][] activations = new double[dense.length][];
+        for (int l=0; l<dense.length; l++)
+            activations[l] = new double[dense[l].outputs()];
+        for (double[] input : calibration) {
+            if (input.length < plan.size(0))
+                throw new IllegalArgumentException("Calibration input is too small.");
+            double[] in = input;
+            for (int l=0; l<dense.length; l++) {
+                for (int j=0; j<dense[l].inputs(); j++)
+                    ranges[l] = Math.max(ranges[l], Math.abs(in[j]));
+                dense[l].forward(in, 0, activations[l], 0, null);
+                in = activations[l];
+            }
+        }
+        
+        InferenceLayer[] layers = new InferenceLayer[dense.length];
+        for (int l=0; l<layers.length; l++)
+            layers[l] = new QuantizedInferenceLayer(dense[l].inputs(), dense[l].outputs(), 
+                    layerWeights[l], layerBiases[l], ranges[l], functions[l+1]);
+        return new InferenceModel(layers);
+    }
+    
+    public int inputs() {
+        return _layers[0].inputs();
+    }
+    
+    public int outputs() {
+        return _layers[_layers.length-1].outputs();
+    }
+    
+    /**
+     * The memory taken by the model's weights and biases.
+     */
+    public long parameterBytes() {
+        long bytes = 0;
+        for (InferenceLayer layer : _layers)
+            bytes += layer.parameterBytes();
+        return bytes;
+    }
+    
+    public int scratchSize() {
+        return _scratchSize;
+    }
+    
+    public int batchScratchSize() {
+        return BATCH_ROWS*_scratchSize;
+    }
+    
+    /**
+     * The ints predict() and predictBatch() need for their intScratch, the 
+     * same for both. Zero unless the model is quantized.
+     */
+    public int intScratchSize() {
+        return _intScratchSize;
+    }
+    
+    public void predict(double[] in, double[] out) {
+        predict(in, out, _scratch.get(), _intScratch.get());
+    }
+    
+    /**
+     * Runs in forward through every layer and writes the output layer's 
+     * activations to out. The hidden layers take turns using the two halves 
+     * of scratch.
+     */
+    public void predict(double[] in, double[] out, double[] scratch, int[] intScratch) {
+        if (in.length < inputs() || out.length < outputs() || scratch.length < _scratchSize 
+                || intScratch.length < _intScratchSize)
+            throw new IllegalArgumentException("predict() array is too small");
+        double[] src = in;
+        int srcOffset = 0;
+        int half = _scratchSize/2;
+        for (int l=0; l<_layers.length; l++) {
+            if (l == _layers.length-1) {
+                _layers[l].forward(src, srcOffset, out, 0, intScratch);
+                break;
+            }
+            int destOffset = (l % 2 == 0) ? 0 : half;
+            _layers[l].forward(src, srcOffset, scratch, destOffset, intScratch);
+            src = scratch;
+            srcOffset = destOffset;
+        }
+    }
+    
+    /**
+     * Returns one row of outputs for each row of inputs.
+     */
+    public double[][] predictBatch(double[][] inputs) {
+        int rows = inputs.length;
+        double[] flatIn = new double[rows*inputs()];
+        double[] flatOut = new double[rows*outputs()];
+        for (int r=0; r<rows; r++)
+            System.arraycopy(inputs[r], 0, flatIn, r*inputs(), inputs());
+        predictBatch(flatIn, rows, flatOut);
+        double[][] outputs = new double[rows][];
+        for (int r=0; r<rows; r++)
+            outputs[r] = Arrays.copyOfRange(flatOut, r*outputs(), (r+1)*outputs());
+        return outputs;
+    }
+    
+    /**
+     * The fraction of inputs for which the largest output is the one that 
+     * the matching target has its largest value in, as for one-hot class 
+     * labels.
+     */
+    public double accuracy(double[][] inputs, double[][] targets) {
+        if (targets.length != inputs.length)
+            throw new IllegalArgumentException("Need one target for each input.");
+        double[][] outputs = predictBatch(inputs);
+        int correct = 0;
+        for (int r=0; r<inputs.length; r++)
+            correct += largest(outputs[r]) == largest(targets[r]) ? 1 : 0;
+        return (double)correct / inputs.length;
+    }
+    
+    /**
+     * The fraction of inputs for which this model and other have their 
+     * largest output in the same place. Comparing the model from 
+     * Network.quantize() with the one from Network.freeze() on held out 
+     * inputs shows how many answers quantizing changed.
+     */
+    public double agreement(InferenceModel other, double[][] inputs) {
+        double[][] outputs = predictBatch(inputs);
+        double[][] otherOutputs = other.predictBatch(inputs);
+        int same = 0;
+        for (int r=0; r<inputs.length; r++)
+            same += largest(outputs[r]) == largest(otherOutputs[r]) ? 1 : 0;
+        return (double)same / inputs.length;
+    }
+    
+    private static int largest(double[] values) {
+        int best = 0;
+        for (int i=1; i<values.length; i++)
+            if (values[i] > values[best])
+                best = i;
+        return best;
+    }
+    
+    /**
+     * flatIn holds rows inputs, one after another, each inputs() long. The 
+     * matching outputs are written to flatOut the same way.
+     */
+    public void predictBatch(double[] flatIn, int rows, double[] flatOut) {
+        predictBatch(flatIn, rows, flatOut, _batchScratch.get(), _intScratch.get());
+    }
+    
+    /**
+     * The same as predictBatch(flatIn, rows, flatOut), using caller supplied 
+     * scratch arrays of at least batchScratchSize() doubles and 
+     * intScratchSize() ints.
+     */
+    public void predictBatch(double[] flatIn, int rows, double[] flatOut, double[] scratch, int[] intScratch) {
+        if (flatIn.length < rows*inputs() || flatOut.length < rows*outputs() 
+                || scratch.length < batchScratchSize() || intScratch.length < _intScratchSize)
+            throw new IllegalArgumentException("predictBatch() array is too small");
+        int half = batchScratchSize()/2;
+        for (int first=0; first<rows; first+=BATCH_ROWS) {
+            int count = Math.min(BATCH_ROWS, rows - first);
+            double[] src = flatIn;
+            int srcOffset = first*inputs();
+            for (int l=0; l<_layers.length; l++) {
+                if (l == _layers.length-1) {
+                    _layers[l].forward(src, srcOffset, flatOut, first*outputs(), count, intScratch);
+                    break;
+                }
+                int destOffset = (l % 2 == 0) ? 0 : half;
+                _layers[l].forward(src, srcOffset, scratch, destOffset, count, intScratch);
+                src = scratch;
+                srcOffset = destOffset;
+            }
+        }
+    }
+}
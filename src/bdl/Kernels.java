@@ -0,0 +1,98 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+/**
+ * The inner loops of the FLAT engine's vectorized kernels.
+ * 
+ * Each loop is a straight run over contiguous arrays with no calls and no 
+ * dependencies between iterations, which is the shape HotSpot's C2 compiler 
+ * turns into packed SSE, AVX or AVX-512 instructions on its own. To get there
+ * the loops fold several terms together before adding them to their result, 
+ * which changes the order in which values are added, so results can differ 
+ * from the scalar kernels in the last few bits.
+ * 
+ * @author chuckwolber
+ */
+final class Kernels
+{
+    private Kernels() {
+    }
+    
+    /**
+     * out[i] += in[j] * w[wOffset + j*columns + i] over all j in [0, rows) and 
+     * all i in [from, to). Four rows of w are folded in per pass over out, so 
+     * out is loaded and stored a quarter as often.
+     */
+    static void multiplyAdd(double[] in, int rows, double[] w, int wOffset, int columns, 
+            double[] out, int from, int to) {
+        int j = 0;
+        for (; j+4<=rows; j+=4) {
+            double a0 = in[j];
+            double a1 = in[j+1];
+            double a2 = in[j+2];
+            double a3 = in[j+3];
+            int r0 = wOffset + j*columns;
+            int r1 = r0 + columns;
+            int r2 = r1 + columns;
+            int r3 = r2 + columns;
+            for (int i=from; i<to; i++)
+                out[i] += w[r0 + i]*a0 + w[r1 + i]*a1 + w[r2 + i]*a2 + w[r3 + i]*a3;
+        }
+        for (; j<rows; j++) {
+            double a = in[j];
+            int r = wOffset + j*columns;
+            for (int i=from; i<to; i++)
+                out[i] += w[r + i]*a;
+        }
+    }
+    
+    /**
+     * The same, over single precision weights. The four products of each fold
+     * are formed and added in float, which is what lets this loop run at 
+     * float width, and the folded value is then added to out in double, so 
+     * the long sum over every row is still kept in double.
+     */
+    static void multiplyAdd(double[] in, int rows, float[] w, int wOffset, int columns, 
+            double[] out, int from, int to) {
+        int j = 0;
+        for (; j+4<=rows; j+=4) {
+            float a0 = (float)in[j];
+            float a1 = (float)in[j+1];
+            float a2 = (float)in[j+2];
+            float a3 = (float)in[j+3];
+            int r0 = wOffset + j*columns;
+            int r1 = r0 + columns;
+            int r2 = r1 + columns;
+            int r3 = r2 + columns;
+            for (int i=from; i<to; i++)
+                out[i] += w[r0 + i]*a0 + w[r1 + i]*a1 + w[r2 + i]*a2 + w[r3 + i]*a3;
+        }
+        for (; j<rows; j++) {
+            double a = in[j];
+            int r = wOffset + j*columns;
+            for (int i=from; i<to; i++)
+                out[i] += w[r + i]*a;
+        }
+    }
+}
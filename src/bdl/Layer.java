@@ -23,100 +23,93 @@
 package bdl;
 
 import bdl.activationFunctions.ActivationFunction;
+import bdl.optimizers.Optimizer;
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- *
+ * A Layer is one column of nodes in a Network. How those nodes and the weights
+ * between them are represented is up to the ComputeEngine that built the
+ * Network, so everything a Network needs from a Layer is declared here.
+ * 
  * @author chuckwolber
  */
-public class Layer
+public abstract class Layer
 {
-    private final ArrayList<Node> _nodes = new ArrayList<>();
-    
-    Layer(int nodes, ActivationFunction func, double learningRate) {
-        for (int i=0; i<nodes; i++)
-            _nodes.add(new Node(func, learningRate));
-    }
+    private ForkJoinPool _pool;
+    private int _parallelWidth;
+    private Optimizer _optimizer;
+    private int _weightOffset;
     
-    ArrayList<Node> nodes() {
-        return _nodes;
-    }
-    
-    void setBiases(ArrayList<Double> biases) {
-        _nodes.forEach((node) -> {
-            node.setBias(biases.get(0));
-            biases.remove(0);
-        });
-    }
+    abstract int size();
+    abstract void initializeWeights();
+    abstract void setInput(double[] inputValues);
+    abstract void setInput(int[] indices, double[] values);
+    abstract ArrayList<Double> output();
+    abstract void forwardPropagate();
+    abstract double currentError(double[] expectedValues);
+    abstract void calculateErrorRate(double[] expectedValues);
+    abstract void backwardPropagate();
+    abstract void updateWeights();
+    abstract void accumulatedEdw();
+    abstract void updateWeights(int batchSize);
+    abstract void linkToLayer(Layer parentLayer);
+    abstract ActivationFunction activationFunction();
+    abstract int weightCount();
     
-    ArrayList<Double> weights() {
-        ArrayList<Double> weights = new ArrayList<>();
-        _nodes.forEach((node) -> {
-            weights.addAll(node.weights());
-        });
-        return weights;
-    }
+    /*
+     * Each of these copies this layer's weights or biases starting at offset, 
+     * in the order of Network.weights() and NetworkDescriptor.setBiases(), and
+     * returns the offset just past them.
+     */
+    abstract int getWeights(double[] dest, int offset);
+    abstract int setWeights(double[] src, int offset);
+    abstract int getBiases(double[] dest, int offset);
+    abstract int setBiases(double[] src, int offset);
     
-    void setWeights(ArrayList<Double> weights) {
-        _nodes.forEach((node) -> {
-            node.setWeights(weights);
-        });
-    }
+    /**
+     * Copies the ∂E/∂w sums built up by accumulatedEdw() to dest, in the same 
+     * order as getWeights(), and clears them, as updateWeights(int) would.
+     */
+    abstract int takedEdwSum(double[] dest, int offset);
     
-    void setInput(double[] inputValues) {
-        if (inputValues.length != _nodes.size())
-            return;
-        for (int i=0; i<_nodes.size(); i++)
-            _nodes.get(i).sensorInput(inputValues[i]);
+    /**
+     * Layers at least parallelWidth nodes wide split their forward, backward 
+     * and update passes across the pool. Every node in a layer can be worked 
+     * on independently within a pass, so no other coordination is needed.
+     */
+    void setWorkerPool(ForkJoinPool pool, int parallelWidth) {
+        _pool = pool;
+        _parallelWidth = parallelWidth;
     }
     
-    ArrayList<Double> output() {
-        ArrayList<Double> output = new ArrayList<>();
-        _nodes.forEach((node) -> {
-            output.add(node.output());
-        });
-        return output;
+    /**
+     * The weights this layer owns are numbered from weightOffset in the 
+     * optimizer's state, in the same order as Network.weights().
+     */
+    void setOptimizer(Optimizer optimizer, int weightOffset) {
+        _optimizer = optimizer;
+        _weightOffset = weightOffset;
     }
     
-    void forwardPropagate() {
-        _nodes.forEach((node) -> {
-            node.forwardPropagate();
-        });
+    Optimizer optimizer() {
+        return _optimizer;
     }
     
-    double currentError(double[] expectedValues) {
-        if (expectedValues.length != _nodes.size())
-            return -1.0;
-        double currentError = 0.0;
-        for (int i=0; i<_nodes.size(); i++)
-            currentError += _nodes.get(i).currentError(expectedValues[i]);
-        return 0.5*currentError;
+    int weightOffset() {
+        return _weightOffset;
     }
     
-    void calculateErrorRate(double[] expectedValues) {
-        if (expectedValues.length != _nodes.size())
+    /**
+     * Runs body over [0, count), split across the worker pool if this layer is
+     * wide enough, otherwise in the calling thread.
+     */
+    void forRange(int count, RangeTask.Body body) {
+        if (_pool == null || _parallelWidth < 1 || size() < _parallelWidth) {
+            body.run(0, count);
             return;
-        for (int i=0; i<_nodes.size(); i++)
-            _nodes.get(i).calculateErrorRate(expectedValues[i]);
-    }
-    
-    void backwardPropagate() {
-        _nodes.forEach((node) -> {
-            node.backwardPropagate();
-        });
-    }
-    
-    void updateWeights() {
-        _nodes.forEach((node) -> {
-            node.updateWeights();
-        });
-    }
-    
-    void linkToLayer(Layer parentLayer) {
-        parentLayer.nodes().forEach((parentNode)-> {
-            _nodes.forEach((node)-> {
-                node.linkToParent(parentNode);
-            });
-        });
+        }
+        int grain = count / (4*_pool.getParallelism());
+        _pool.invoke(new RangeTask(body, 0, count, grain));
     }
 }
@@ -0,0 +1,207 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.activationFunctions.ActivationFunction;
+import bdl.activationFunctions.ActivationFunctions;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Saves a Network to, and loads one from, a compact binary file.
+ * 
+ * The file is little endian and laid out as follows:
+ * 
+ *   int      magic number, "BDLM"
+ *   int      format version
+ *   int      number of layers, L
+ *   int[L]   nodes in each layer, input layer first
+ *   double   learning rate
+ *   int[L-1] ActivationFunctions id of every layer after the input layer
+ *   int      number of weights, W
+ *   int      number of biases, B
+ *   double[W] weights, in the order of Network.weights()
+ *   double[B] biases, in the order of NetworkDescriptor.setBiases()
+ *   int      CRC32 of everything above
+ * 
+ * Saving writes the file in one sequential pass. Loading maps the file into 
+ * memory, checks the CRC and bulk copies the weights and biases straight into
+ * place, so load time is bound by how fast the file can be read.
+ * 
+ * @author chuckwolber
+ */
+public final class ModelFile
+{
+    private static final int MAGIC = 0x42444C4D;
+    private static final int VERSION = 1;
+    private static final int CHUNK_DOUBLES = 8192;
+    
+    private ModelFile() {
+    }
+    
+    public static void save(Network network, Path path) throws IOException {
+        int[] sizes = network.layerSizes();
+        ActivationFunction[] functions = network.activationFunctions();
+        double[] weights = new double[network.weightCount()];
+        double[] biases = new double[network.biasCount()];
+        network.getWeights(weights);
+        network.getBiases(biases);
+        
+        ByteBuffer header = ByteBuffer.allocate(4*(sizes.length*2 + 5) + 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(sizes.length);
+        for (int size : sizes)
+            header.putInt(size);
+        header.putDouble(network.descriptor().learningRate());
+        for (int l=1; l<functions.length; l++) {
+            int id = ActivationFunctions.idOf(functions[l]);
+            if (id < 0)
+                throw new IllegalArgumentException("Cannot save activation function " 
+                        + functions[l].getClass().getName());
+            header.putInt(id);
+        }
+        header.putInt(weights.length);
+        header.putInt(biases.length);
+        header.flip();
+        
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(channel, header, crc);
+            ByteBuffer chunk = ByteBuffer.allocateDirect(8*CHUNK_DOUBLES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            write(channel, chunk, weights, crc);
+            write(channel, chunk, biases, crc);
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int)crc.getValue());
+            trailer.flip();
+            while (trailer.hasRemaining())
+                channel.write(trailer);
+        }
+    }
+    
+    /**
+     * Loads a Network that uses the default ComputeEngine.
+     */
+    public static Network load(Path path) throws IOException {
+        return load(path, null);
+    }
+    
+    public static Network load(Path path, ComputeEngine engine) throws IOException {
+        Contents contents = read(path);
+        NetworkDescriptor nd = new NetworkDescriptor();
+        nd.setLayerSizes(contents.sizes);
+        nd.setLearningRate(contents.learningRate);
+        nd.setActivationFunction(contents.functions[1]);
+        for (int l=2; l<contents.functions.length; l++)
+            nd.setActivationFunction(l, contents.functions[l]);
+        nd.setComputeEngine(engine);
+        return new Network(nd, contents.weights, contents.biases);
+    }
+    
+    /**
+     * Loads a model straight into an InferenceModel, without building the 
+     * training graph at all.
+     */
+    public static InferenceModel loadInferenceModel(Path path) throws IOException {
+        Contents contents = read(path);
+        return InferenceModel.build(new ExecutionPlan(contents.sizes), contents.functions, 
+                contents.weights, contents.biases);
+    }
+    
+    private static class Contents
+    {
+        int[] sizes;
+        double learningRate;
+        ActivationFunction[] functions;
+        double[] weights;
+        double[] biases;
+    }
+    
+    private static Contents read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE)
+                throw new IOException(path + " is too large to map");
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            
+            if (length < 16 || map.getInt() != MAGIC)
+                throw new IOException(path + " is not a model file");
+            int version = map.getInt();
+            if (version != VERSION)
+                throw new IOException(path + " has unsupported version " + version);
+            
+            CRC32 crc = new CRC32();
+            ByteBuffer body = map.duplicate();
+            body.position(0).limit((int)length - 4);
+            crc.update(body);
+            if ((int)crc.getValue() != map.getInt((int)length - 4))
+                throw new IOException(path + " failed its checksum");
+            
+            Contents contents = new Contents();
+            contents.sizes = new int[map.getInt()];
+            for (int l=0; l<contents.sizes.length; l++)
+                contents.sizes[l] = map.getInt();
+            contents.learningRate = map.getDouble();
+            contents.functions = new ActivationFunction[contents.sizes.length];
+            for (int l=1; l<contents.sizes.length; l++) {
+                int id = map.getInt();
+                contents.functions[l] = ActivationFunctions.forId(id);
+                if (contents.functions[l] == null)
+                    throw new IOException(path + " uses unknown activation function " + id);
+            }
+            contents.weights = new double[map.getInt()];
+            contents.biases = new double[map.getInt()];
+            DoubleBuffer values = map.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            values.get(contents.weights);
+            values.get(contents.biases);
+            return contents;
+        }
+    }
+    
+    private static void write(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+    
+    private static void write(FileChannel channel, ByteBuffer chunk, double[] values, CRC32 crc) throws IOException {
+        for (int offset=0; offset<values.length; offset+=CHUNK_DOUBLES) {
+            int count = Math.min(CHUNK_DOUBLES, values.length - offset);
+            chunk.clear();
+            chunk.asDoubleBuffer().put(values, offset, count);
+            chunk.limit(8*count);
+            write(channel, chunk, crc);
+        }
+    }
+}
@@ -22,7 +22,15 @@
 
 package bdl;
 
+import bdl.activationFunctions.ActivationFunction;
+import bdl.data.Batch;
+import bdl.data.BatchPrefetcher;
+import bdl.data.DataSource;
+import bdl.optimizers.Optimizer;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  *
@@ -31,33 +39,125 @@ import java.util.ArrayList;
 public class Network
 {
     private final NetworkDescriptor _descriptor;
+    private final ExecutionPlan _plan;
     private final ArrayList<Layer> _layers = new ArrayList<>();
+    private Optimizer _optimizer;
+    private double[] _parameters;
+    private float[] _floatParameters;
+    private int[] _pruned;
         
     public Network(NetworkDescriptor descriptor) {
         _descriptor = descriptor;
-        for (int i=0; i<_descriptor.layers()-1; i++)
-            addLayer(new Layer(_descriptor.nodesPerLayer(), 
-                    _descriptor.activationFunction(), 
-                    _descriptor.learningRate()));
-        addLayer(new Layer(_descriptor.outputNodes(), 
-                _descriptor.activationFunction(), 
-                _descriptor.learningRate()));
+        _plan = new ExecutionPlan(descriptor.layerSizes());
+        checkPrecision();
+        addLayers();
+        initializeOptimizer();
         setWeights(descriptor.initialWeights());
         setBiases(descriptor.biases());
     }
     
+    /**
+     * Builds a Network whose weights and biases are copied in bulk from the 
+     * given arrays, in the same order as weights() and the descriptor's biases,
+     * instead of coming from the descriptor.
+     */
+    Network(NetworkDescriptor descriptor, double[] weights, double[] biases) {
+        _descriptor = descriptor;
+        _plan = new ExecutionPlan(descriptor.layerSizes());
+        checkPrecision();
+        addLayers();
+        initializeOptimizer();
+        setWeights(weights);
+        setBiases(biases);
+    }
+    
     public ArrayList<Double> weights() {
-        ArrayList<Double> weights = new ArrayList<>();
-        _layers.forEach((layer) -> {
-            weights.addAll(layer.weights());
-        });
+        double[] values = new double[weightCount()];
+        getWeights(values);
+        ArrayList<Double> weights = new ArrayList<>(values.length);
+        for (double value : values)
+            weights.add(value);
         return weights;
     }
     
+    /**
+     * The number of values in the parameter vector.
+     */
+    public int parameterCount() {
+        return weightCount() + biasCount();
+    }
+    
+    /**
+     * Copies the parameter vector into dest. The order is fixed, and is the 
+     * same for every ComputeEngine: first every weight, in the order of 
+     * weights(), then the biases of every layer after the input layer, in the 
+     * order of NetworkDescriptor.setBiases().
+     */
+    public void getParameters(double[] dest) {
+        if (dest.length < parameterCount())
+            throw new IllegalArgumentException("Need room for " + parameterCount() + " parameters.");
+        if (_parameters != null) {
+            System.arraycopy(_parameters, 0, dest, 0, _parameters.length);
+            return;
+        }
+        getWeights(dest);
+        getBiases(dest, weightCount());
+    }
+    
+    /**
+     * Replaces every weight and bias, reading src in the order described at 
+     * getParameters().
+     */
+    public void setParameters(double[] src) {
+        if (src.length < parameterCount())
+            throw new IllegalArgumentException("Need " + parameterCount() + " parameters.");
+        if (_parameters != null) {
+            System.arraycopy(src, 0, _parameters, 0, _parameters.length);
+            return;
+        }
+        setWeights(src);
+        setBiases(src, weightCount());
+    }
+    
+    /**
+     * The parameter vector, in the order described at getParameters(). 
+     * 
+     * The FLAT engine trains its weights and biases in place in a single 
+     * array, and this is a view of that array: nothing is copied, and writes 
+     * change the Network. The OBJECT_GRAPH engine keeps them in Node and 
+     * Weight objects, and Precision.FLOAT keeps them as floats, so in either 
+     * of those cases this is a read only copy.
+     */
+    public DoubleBuffer parameters() {
+        if (_parameters != null)
+            return DoubleBuffer.wrap(_parameters);
+        double[] copy = new double[parameterCount()];
+        getParameters(copy);
+        return DoubleBuffer.wrap(copy).asReadOnlyBuffer();
+    }
+    
     public void setInput(double[] inputValues) {
         inputLayer().setInput(inputValues);
     }
     
+    /**
+     * Sets the input layer from a sparse vector: input node indices[k] gets 
+     * values[k], and every other input node gets 0. Indices must be distinct. 
+     * Given in ascending order, they give results identical to 
+     * setInput(double[]), except with vectorized kernels, which sum in a 
+     * different order and so agree only to rounding. 
+     * 
+     * With the FLAT engine, the first hidden layer's forward pass and ∂E/∂w 
+     * pass then visit only the non-zero inputs, so they cost time in 
+     * proportion to the number of non-zeros rather than the width of the 
+     * input layer. Updating the weights still visits every weight, once per 
+     * batch. The OBJECT_GRAPH engine accepts sparse input but gains nothing 
+     * from it.
+     */
+    public void setInput(int[] indices, double[] values) {
+        inputLayer().setInput(indices, values);
+    }
+    
     public ArrayList<Double> output() {
         return outputLayer().output();
     }
@@ -66,6 +166,18 @@ public class Network
         return _layers;
     }
     
+    NetworkDescriptor descriptor() {
+        return _descriptor;
+    }
+    
+    ExecutionPlan plan() {
+        return _plan;
+    }
+    
+    Optimizer optimizer() {
+        return _optimizer;
+    }
+    
     public void forwardPropagate() {
         _layers.forEach((layer) -> {
             layer.forwardPropagate();
@@ -86,24 +198,373 @@ public class Network
     }
     
     public void updateWeights() {
+        _optimizer.beginStep();
         _layers.forEach((layer) -> {
             layer.updateWeights();
         });
+        applyPruning();
     }
     
-    private void setWeights(ArrayList<Double> weights) {
+    /**
+     * Trains on every sample in the batch, adding up ∂E/∂w as it goes, and 
+     * then updates each weight once by the average ∂E/∂w. A batch of one 
+     * sample is exactly the same as calling setInput(), forwardPropagate(), 
+     * calculateErrorRate(), backwardPropagate() and updateWeights().
+     * 
+     * Returns the sum of currentError() over the batch.
+     */
+    public double trainBatch(double[][] inputs, double[][] targets) {
+        return trainBatch(inputs, targets, 0, inputs.length);
+    }
+    
+    /**
+     * Trains on samples from (inclusive) to to (exclusive) as one batch.
+     */
+    public double trainBatch(double[][] inputs, double[][] targets, int from, int to) {
+        if (inputs.length != targets.length || from >= to)
+            return -1.0;
+        double error = 0.0;
+        for (int s=from; s<to; s++) {
+            setInput(inputs[s]);
+            forwardPropagate();
+            error += currentError(targets[s]);
+            calculateErrorRate(targets[s]);
+            backwardPropagate();
+            accumulatedEdw();
+        }
+        updateWeights(to - from);
+        return error;
+    }
+    
+    /**
+     * trainBatch() over sparse samples. Sample s is given by indices[s] and 
+     * values[s], as for setInput(int[], double[]).
+     */
+    public double trainBatch(int[][] indices, double[][] values, double[][] targets) {
+        if (indices.length != values.length || indices.length != targets.length || indices.length == 0)
+            return -1.0;
+        double error = 0.0;
+        for (int s=0; s<indices.length; s++) {
+            setInput(indices[s], values[s]);
+            forwardPropagate();
+            error += currentError(targets[s]);
+            calculateErrorRate(targets[s]);
+            backwardPropagate();
+            accumulatedEdw();
+        }
+        updateWeights(indices.length);
+        return error;
+    }
+    
+    /**
+     * Runs samples from (inclusive) to to (exclusive) forward and backward, 
+     * as trainBatch() does, but leaves the weights alone and writes the sum 
+     * of ∂E/∂p over the samples to gradient instead, one entry per parameter 
+     * in the order of getParameters(). Biases are held fixed in training, so 
+     * their entries are 0. applyGradient() finishes what trainBatch() would 
+     * have done, so the two can run in different places, as in 
+     * bdl.distributed.
+     * 
+     * Returns the sum of currentError() over the samples.
+     */
+    public double computeGradient(double[][] inputs, double[][] targets, int from, int to, double[] gradient) {
+        if (gradient.length < parameterCount())
+            throw new IllegalArgumentException("Need room for " + parameterCount() + " gradients.");
+        if (inputs.length != targets.length || from >= to)
+            return -1.0;
+        double error = 0.0;
+        for (int s=from; s<to; s++) {
+            setInput(inputs[s]);
+            forwardPropagate();
+            error += currentError(targets[s]);
+            calculateErrorRate(targets[s]);
+            backwardPropagate();
+            accumulatedEdw();
+        }
+        int offset = 0;
+        for (Layer layer : _layers)
+            offset = layer.takedEdwSum(gradient, offset);
+        Arrays.fill(gradient, offset, parameterCount(), 0.0);
+        return error;
+    }
+    
+    /**
+     * Takes one optimizer step using a gradient summed over samples 
+     * samples, laid out as by computeGradient(). Applying the gradient that 
+     * computeGradient() produced for a batch gives exactly the weights that 
+     * trainBatch() would have for that batch.
+     */
+    public void applyGradient(double[] gradient, int samples) {
+        if (gradient.length < parameterCount())
+            throw new IllegalArgumentException("Need " + parameterCount() + " gradients.");
+        double[] weights = _parameters;
+        if (weights == null) {
+            weights = new double[weightCount()];
+            getWeights(weights);
+        }
+        _optimizer.beginStep();
+        for (int k=0; k<weightCount(); k++)
+            weights[k] -= _optimizer.delta(k, gradient[k] / samples);
+        if (weights != _parameters)
+            setWeights(weights);
+        applyPruning();
+    }
+    
+    void accumulatedEdw() {
+        _layers.forEach((layer) -> {
+            layer.accumulatedEdw();
+        });
+    }
+    
+    void updateWeights(int batchSize) {
+        _optimizer.beginStep();
         _layers.forEach((layer) -> {
-            layer.setWeights(weights);
+            layer.updateWeights(batchSize);
         });
+        applyPruning();
+    }
+    
+    /**
+     * Runs the given number of epochs over the samples, in order, in batches 
+     * of batchSize samples. The last batch of an epoch may be smaller.
+     * 
+     * Returns the sum of currentError() over the final epoch.
+     */
+    public double fit(double[][] inputs, double[][] targets, int batchSize, int epochs) {
+        if (inputs.length != targets.length || batchSize < 1)
+            return -1.0;
+        double error = 0.0;
+        for (int epoch=0; epoch<epochs; epoch++) {
+            error = 0.0;
+            for (int from=0; from<inputs.length; from+=batchSize)
+                error += trainBatch(inputs, targets, from, 
+                        Math.min(from + batchSize, inputs.length));
+        }
+        return error;
+    }
+    
+    /**
+     * Streams the given number of epochs from source in batches of batchSize, 
+     * with a BatchPrefetcher reading ahead on a background thread. Returns the
+     * sum of currentError() over the final epoch.
+     */
+    public double fit(DataSource source, int batchSize, int epochs) throws IOException {
+        double error = 0.0;
+        try (BatchPrefetcher batches = new BatchPrefetcher(source, batchSize, 
+                BatchPrefetcher.DEFAULT_BUFFERS, epochs)) {
+            for (int epoch=0; epoch<epochs; epoch++) {
+                error = 0.0;
+                Batch batch;
+                while ((batch = batches.next()) != null)
+                    error += trainBatch(batch.inputs(), batch.targets(), 0, batch.size());
+            }
+        }
+        return error;
+    }
+    
+    /**
+     * Magnitude pruning. Sets the smallest weights in each layer, by absolute 
+     * value, to zero, so that the given fraction of every layer's weights are 
+     * zero, and holds them at zero through any further training. Training on 
+     * afterwards fine tunes the weights that are left to make up for the ones 
+     * that are gone. Pruning again with a higher sparsity prunes further, 
+     * which is gentler than pruning the whole amount at once.
+     * 
+     * Pruning keeps the weights where they are, so a pruned Network trains no 
+     * faster. The savings come from freeze(), which stores layers that are 
+     * mostly zero with only their surviving weights.
+     */
+    public void prune(double sparsity) {
+        if (sparsity < 0.0 || sparsity >= 1.0)
+            throw new IllegalArgumentException("sparsity must be at least 0 and less than 1.");
+        double[] weights = new double[weightCount()];
+        getWeights(weights);
+        int[] pruned = new int[weights.length];
+        int count = 0;
+        for (int l=1; l<_plan.layers(); l++) {
+            int from = _plan.weightOffset(l);
+            int to = from + _plan.weightCount(l);
+            int prune = (int)Math.round(sparsity*(to - from));
+            if (prune == 0)
+                continue;
+            double[] magnitudes = new double[to - from];
+            for (int k=from; k<to; k++)
+                magnitudes[k - from] = Math.abs(weights[k]);
+            Arrays.sort(magnitudes);
+            double threshold = magnitudes[prune-1];
+            for (int k=from; k<to && prune > 0; k++) {
+                if (Math.abs(weights[k]) < threshold) {
+                    pruned[count++] = k;
+                    prune--;
+                }
+            }
+            for (int k=from; k<to && prune > 0; k++) {
+                if (Math.abs(weights[k]) == threshold) {
+                    pruned[count++] = k;
+                    prune--;
+                }
+            }
+        }
+        _pruned = Arrays.copyOf(pruned, count);
+        applyPruning();
+    }
+    
+    /**
+     * The fraction of all weights that are zero.
+     */
+    public double sparsity() {
+        double[] weights = new double[weightCount()];
+        getWeights(weights);
+        return SparseInferenceLayer.sparsity(weights, 0, weights.length);
+    }
+    
+    /**
+     * The indices, in the order of getWeights(), of the weights removed by 
+     * prune(), or null if it has not been called. The array is replaced, never
+     * changed, by a later prune(), so callers may hold on to it but must not 
+     * modify it.
+     */
+    int[] prunedWeights() {
+        return _pruned;
+    }
+    
+    /**
+     * Replaces the weights held at zero, as prunedWeights() returned them, and
+     * zeroes them.
+     */
+    void setPrunedWeights(int[] pruned) {
+        _pruned = pruned;
+        applyPruning();
+    }
+    
+    /**
+     * Puts the weights removed by prune() back to zero after an update.
+     */
+    void applyPruning() {
+        if (_pruned == null)
+            return;
+        if (_parameters != null) {
+            for (int k : _pruned)
+                _parameters[k] = 0.0;
+        } else if (_floatParameters != null) {
+            for (int k : _pruned)
+                _floatParameters[k] = 0.0f;
+        } else {
+            double[] weights = new double[weightCount()];
+            getWeights(weights);
+            for (int k : _pruned)
+                weights[k] = 0.0;
+            setWeights(weights);
+        }
+    }
+    
+    /**
+     * Takes a copy of the current weights, biases and activation functions and
+     * returns it as an InferenceModel. The model shares nothing with this 
+     * Network, so training can carry on while the model serves predictions. 
+     * Layers that are mostly zero, as after prune(), are stored in compressed 
+     * sparse rows, so predictions skip the pruned connections.
+     */
+    public InferenceModel freeze() {
+        double[] weights = new double[weightCount()];
+        double[] biases = new double[biasCount()];
+        getWeights(weights);
+        getBiases(biases);
+        return InferenceModel.build(_plan, activationFunctions(), weights, biases);
+    }
+    
+    /**
+     * Post-training quantization. Returns an InferenceModel like freeze(), but
+     * with 8 bit weights, an eighth of the size, and integer arithmetic inside
+     * each layer. The scale of each layer's inputs is calibrated by running 
+     * calibrationInputs through the full precision model, so they should be 
+     * representative of the inputs the model will see. Outputs are doubles, 
+     * and agree with freeze()'s to within the rounding that 8 bits allow.
+     */
+    public InferenceModel quantize(double[][] calibrationInputs) {
+        double[] weights = new double[weightCount()];
+        double[] biases = new double[biasCount()];
+        getWeights(weights);
+        getBiases(biases);
+        return InferenceModel.quantize(_plan, activationFunctions(), weights, biases, calibrationInputs);
+    }
+    
+    int[] layerSizes() {
+        return _plan.sizes();
+    }
+    
+    ActivationFunction[] activationFunctions() {
+        ActivationFunction[] functions = new ActivationFunction[_layers.size()];
+        for (int l=0; l<functions.length; l++)
+            functions[l] = _layers.get(l).activationFunction();
+        return functions;
+    }
+    
+    int weightCount() {
+        return _plan.weightCount();
+    }
+    
+    int biasCount() {
+        return _plan.biasCount();
+    }
+    
+    void getWeights(double[] dest) {
+        int offset = 0;
+        for (Layer layer : _layers)
+            offset = layer.getWeights(dest, offset);
+    }
+    
+    void getBiases(double[] dest) {
+        getBiases(dest, 0);
+    }
+    
+    private void getBiases(double[] dest, int offset) {
+        for (int l=1; l<_layers.size(); l++)
+            _layers.get(l).getBiases(dest, offset + _plan.biasOffset(l));
+    }
+    
+    void setWeights(double[] weights) {
+        int offset = 0;
+        for (Layer layer : _layers)
+            offset = layer.setWeights(weights, offset);
+    }
+    
+    private void setBiases(double[] biases) {
+        setBiases(biases, 0);
+    }
+    
+    private void setBiases(double[] biases, int offset) {
+        for (int l=1; l<_layers.size(); l++)
+            _layers.get(l).setBiases(biases, offset + _plan.biasOffset(l));
+    }
+    
+    /**
+     * Without weights, every weight is given a random starting value instead.
+     */
+    private void setWeights(ArrayList<Double> weights) {
+        if (weights == null || weights.isEmpty()) {
+            _layers.forEach((layer) -> {
+                layer.initializeWeights();
+            });
+            return;
+        }
+        setWeights(toArray(weights, weightCount()));
     }
     
     private void setBiases(ArrayList<Double> biases) {
         if (biases == null || biases.isEmpty())
             return;
-        _layers.forEach((layer) -> {
-            if (layer != inputLayer())
-                layer.setBiases(biases);
-        });
+        setBiases(toArray(biases, biasCount()));
+    }
+    
+    private static double[] toArray(ArrayList<Double> values, int count) {
+        if (values.size() < count)
+            throw new IllegalArgumentException("Expected " + count + " values, but was given " 
+                    + values.size() + ".");
+        double[] array = new double[count];
+        for (int k=0; k<count; k++)
+            array[k] = values.get(k);
+        return array;
     }
     
     private Layer inputLayer() {
@@ -114,7 +575,70 @@ public class Network
         return _layers.get(_layers.size()-1);
     }
     
+    private void addLayers() {
+        for (int l=0; l<_plan.layers(); l++)
+            addLayer(newLayer(_plan.size(l), _descriptor.activationFunction(l)));
+        if (_descriptor.computeEngine() == ComputeEngine.FLAT)
+            bindParameters();
+    }
+    
+    /**
+     * Gives every FlatLayer its blocks of one shared parameter array, laid out
+     * in the order described at getParameters().
+     */
+    private void bindParameters() {
+        int count = _plan.weightCount() + _plan.biasCount();
+        if (_descriptor.precision() == Precision.FLOAT)
+            _floatParameters = new float[count];
+        else
+            _parameters = new double[count];
+        for (int l=1; l<_layers.size(); l++) {
+            int weightOffset = _plan.weightOffset(l);
+            int biasOffset = _plan.weightCount() + _plan.biasOffset(l);
+            if (_floatParameters != null)
+                ((FloatFlatLayer)_layers.get(l)).bind(_floatParameters, weightOffset, biasOffset);
+            else
+                ((FlatLayer)_layers.get(l)).bind(_parameters, weightOffset, biasOffset);
+        }
+    }
+    
+    private void checkPrecision() {
+        if (_descriptor.precision() == Precision.FLOAT 
+                && _descriptor.computeEngine() != ComputeEngine.FLAT)
+            throw new IllegalArgumentException("Precision.FLOAT requires ComputeEngine.FLAT");
+    }
+    
+    private Layer newLayer(int nodes, ActivationFunction function) {
+        if (_descriptor.precision() == Precision.FLOAT)
+            return new FloatFlatLayer(nodes, 
+                    function, 
+                    _descriptor.vectorizedKernels());
+        if (_descriptor.computeEngine() == ComputeEngine.FLAT)
+            return new FlatLayer(nodes, 
+                    function, 
+                    _descriptor.vectorizedKernels());
+        return new NodeLayer(nodes, function);
+    }
+    
+    /**
+     * Numbers the weights for the optimizer in the same order as weights(), 
+     * one layer's block after another.
+     */
+    private void initializeOptimizer() {
+        _optimizer = _descriptor.optimizer();
+        _optimizer.initialize(weightCount(), 
+                _descriptor.learningRate(), 
+                _descriptor.learningRateSchedule());
+        int offset = 0;
+        for (Layer layer : _layers) {
+            layer.setOptimizer(_optimizer, offset);
+            offset += layer.weightCount();
+        }
+    }
+    
     private void addLayer(Layer l) {
+        if (_descriptor.parallelLayerWidth() > 0)
+            l.setWorkerPool(_descriptor.workerPool(), _descriptor.parallelLayerWidth());
         if (_layers.size() > 0)
             l.linkToLayer(_layers.get(_layers.size()-1));
         _layers.add(l);
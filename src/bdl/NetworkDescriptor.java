@@ -23,7 +23,14 @@
 package bdl;
 
 import bdl.activationFunctions.ActivationFunction;
+import bdl.optimizers.LearningRateSchedule;
+import bdl.optimizers.Optimizer;
+import bdl.optimizers.SGDOptimizer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 /**
  *
@@ -34,16 +41,27 @@ public class NetworkDescriptor
     private int _layers;
     private int _nodesPerLayer;
     private int _outputNodes;
+    private int[] _layerSizes;
     private double _learningRate;
     ArrayList<Double> _biases;
     ArrayList<Double> _initialWeights;
     private ActivationFunction _function;
+    private final HashMap<Integer, ActivationFunction> _layerFunctions = new HashMap<>();
+    private ComputeEngine _computeEngine;
+    private Precision _precision;
+    private int _parallelLayerWidth;
+    private ForkJoinPool _workerPool;
+    private boolean _vectorizedKernels;
+    private Supplier<? extends Optimizer> _optimizer;
+    private LearningRateSchedule _schedule;
     
     public void setLayers(int layers) {
         _layers = layers;
     }
     
     public int layers() {
+        if (_layerSizes != null)
+            return _layerSizes.length;
         return _layers;
     }
     
@@ -60,11 +78,36 @@ public class NetworkDescriptor
     }
     
     public int outputNodes() {
+        if (_layerSizes != null)
+            return _layerSizes[_layerSizes.length-1];
         if (_outputNodes == 0)
             return _nodesPerLayer;
         return _outputNodes;
     }
     
+    /**
+     * Gives every layer its own width, input layer first and output layer 
+     * last. This takes the place of setLayers(), setNodesPerLayer() and 
+     * setOutputNodes(), which can only describe networks whose hidden layers 
+     * are as wide as the input layer. Null goes back to using them.
+     */
+    public void setLayerSizes(int... sizes) {
+        _layerSizes = sizes == null ? null : sizes.clone();
+    }
+    
+    /**
+     * The width of every layer, input layer first.
+     */
+    public int[] layerSizes() {
+        if (_layerSizes != null)
+            return _layerSizes.clone();
+        int[] sizes = new int[_layers];
+        Arrays.fill(sizes, _nodesPerLayer);
+        if (_layers > 0)
+            sizes[_layers-1] = outputNodes();
+        return sizes;
+    }
+    
     public void setLearningRate(double learningRate) {
         _learningRate = learningRate;
     }
@@ -96,4 +139,123 @@ public class NetworkDescriptor
     public ActivationFunction activationFunction() {
         return _function;
     }
+    
+    /**
+     * Gives one layer its own activation function, in place of the one set 
+     * by setActivationFunction(ActivationFunction). Layer 0 is the input 
+     * layer, which never applies its function, so the first layer that can 
+     * usefully be set is 1. A null function clears the setting.
+     */
+    public void setActivationFunction(int layer, ActivationFunction function) {
+        if (layer < 0)
+            throw new IllegalArgumentException("Layer " + layer + " does not exist.");
+        if (function == null)
+            _layerFunctions.remove(layer);
+        else
+            _layerFunctions.put(layer, function);
+    }
+    
+    /**
+     * The activation function that the given layer will use.
+     */
+    public ActivationFunction activationFunction(int layer) {
+        ActivationFunction function = _layerFunctions.get(layer);
+        if (function == null)
+            return _function;
+        return function;
+    }
+    
+    /**
+     * An Optimizer keeps state for one Network only, so the descriptor takes 
+     * a way to make them, such as AdamOptimizer::new, and every Network built
+     * from it gets a new one. Without one, each Network gets a new 
+     * SGDOptimizer.
+     */
+    public void setOptimizer(Supplier<? extends Optimizer> optimizer) {
+        _optimizer = optimizer;
+    }
+    
+    /**
+     * Returns a new Optimizer each time it is called.
+     */
+    public Optimizer optimizer() {
+        if (_optimizer == null)
+            return new SGDOptimizer();
+        return _optimizer.get();
+    }
+    
+    /**
+     * How the learning rate changes as training goes on. Constant by default.
+     */
+    public void setLearningRateSchedule(LearningRateSchedule schedule) {
+        _schedule = schedule;
+    }
+    
+    public LearningRateSchedule learningRateSchedule() {
+        if (_schedule == null)
+            return LearningRateSchedule.constant();
+        return _schedule;
+    }
+    
+    public void setComputeEngine(ComputeEngine computeEngine) {
+        _computeEngine = computeEngine;
+    }
+    
+    public ComputeEngine computeEngine() {
+        if (_computeEngine == null)
+            return ComputeEngine.OBJECT_GRAPH;
+        return _computeEngine;
+    }
+    
+    /**
+     * See Precision. Only the FLAT compute engine supports Precision.FLOAT.
+     */
+    public void setPrecision(Precision precision) {
+        _precision = precision;
+    }
+    
+    public Precision precision() {
+        if (_precision == null)
+            return Precision.DOUBLE;
+        return _precision;
+    }
+    
+    /**
+     * Layers with at least this many nodes split each forward, backward and 
+     * update pass across the worker pool. Narrower layers, and every layer 
+     * when this is 0 (the default), run in the calling thread.
+     */
+    public void setParallelLayerWidth(int parallelLayerWidth) {
+        _parallelLayerWidth = parallelLayerWidth;
+    }
+    
+    public int parallelLayerWidth() {
+        return _parallelLayerWidth;
+    }
+    
+    /**
+     * Lets the FLAT engine use the kernels in Kernels for the weighted sums of
+     * the forward pass. They are shaped for the JIT to compile to SIMD 
+     * instructions but add values up in a different order, so results then 
+     * differ from the OBJECT_GRAPH engine in the last few bits. The backward 
+     * pass, activation functions and weight updates, which go through the 
+     * Optimizer one weight at a time, are the same either way. Off by default.
+     */
+    public void setVectorizedKernels(boolean vectorizedKernels) {
+        _vectorizedKernels = vectorizedKernels;
+    }
+    
+    public boolean vectorizedKernels() {
+        return _vectorizedKernels;
+    }
+    
+    public void setWorkerPool(ForkJoinPool workerPool) {
+        _workerPool = workerPool;
+    }
+    
+    public ForkJoinPool workerPool() {
+        if (_workerPool == null)
+            return ForkJoinPool.commonPool();
+        return _workerPool;
+    }
 }
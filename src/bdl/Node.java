@@ -23,6 +23,7 @@
 package bdl;
 
 import bdl.activationFunctions.ActivationFunction;
+import bdl.optimizers.Optimizer;
 import java.util.ArrayList;
 
 /**
@@ -37,8 +38,8 @@ public class Node
     private double _x = 0.0;
     private double _b = 0.0;
     private double _dEdy = 0.0;
+    private double _delta = 0.0;
     private final ActivationFunction _function;
-    private final Double _learningRate;
     
     void sensorInput(double input) {
         _y = input;
@@ -64,37 +65,48 @@ public class Node
         return this._dEdy;
     }
     
-    Node(ActivationFunction function, Double learningRate) {
+    double delta() {
+        return _delta;
+    }
+    
+    Node(ActivationFunction function) {
         _function = function;
-        _learningRate = learningRate;
     }
     
     void setBias(double bias) {
         _b = bias;
     }
     
-    ArrayList<Double> weights() {
-        ArrayList<Double> weights = new ArrayList<>();
+    double bias() {
+        return _b;
+    }
+    
+    void initializeWeights() {
         _children.forEach((weight) -> {
-            weights.add(weight.weight());
+            weight.initializeWeight();
         });
-        return weights;
     }
     
-    void setWeights(ArrayList<Double> weights) {
-        if (weights == null || weights.isEmpty())
-            _children.forEach((weight) -> {
-                weight.initializeWeight();
-            });
-        else
-            _children.forEach((weight) -> {
-                weight.setWeight(weights.get(0));
-                weights.remove(0);
-            });
+    int getWeights(double[] dest, int offset) {
+        for (Weight weight : _children)
+            dest[offset++] = weight.weight();
+        return offset;
+    }
+    
+    int setWeights(double[] src, int offset) {
+        for (Weight weight : _children)
+            weight.setWeight(src[offset++]);
+        return offset;
+    }
+    
+    int takedEdwSum(double[] dest, int offset) {
+        for (Weight weight : _children)
+            dest[offset++] = weight.takedEdwSum();
+        return offset;
     }
     
     void linkToParent(Node parentNode) {
-        Weight w = new Weight(_learningRate);
+        Weight w = new Weight();
         w.setParentNode(parentNode);
         w.setChildNode(this);
         parentNode.addChildWeight(w);
@@ -109,7 +121,7 @@ public class Node
         _children.add(weight);
     }
     
-    private ActivationFunction getFunction() {
+    ActivationFunction getFunction() {
         return _function;
     }
     
@@ -155,26 +167,48 @@ public class Node
      * Where: ∂E/∂yc = y - expectedValue
      * Where: ∂ is the partial derivative symbol.
      * Where: c refers to the child node.
+     * 
+     * The last two terms, (∂y/∂x) * (∂E/∂y), are the same for every weight 
+     * coming in to a node, and (∂yc/∂xc) * (∂E/∂yc) is the same term for the 
+     * child. So each node works it out once, as its "delta", and both sums 
+     * above use the delta rather than evaluating f'(x) for every weight.
+     * f'(x) itself is found from the node's output, y, which is cheaper than 
+     * starting again from x.
+     * 
+     * Input nodes have no weights coming in, so there is nothing for them to 
+     * calculate.
      */
     void backwardPropagate() {
+        if (_parents.isEmpty())
+            return;
         if (!_children.isEmpty())
             _dEdy = 0.0;
         _children.forEach((weight) -> {
-            double x = weight.childNode().x();
-            _dEdy += weight.weight() *
-                         weight.childNode().getFunction().evalFunctionDerivative(x) *
-                         weight.childNode().dEdy();
+            _dEdy += weight.weight() * weight.childNode().delta();
         });
+        _delta = _function.evalFunctionDerivative(_x, _y) * _dEdy;
         _parents.forEach((weight) -> {
-           weight.setdEdw(weight.parentNode().output() *
-                   weight.childNode().getFunction().evalFunctionDerivative(_x) *
-                   weight.childNode().dEdy());
+           weight.setdEdw(weight.parentNode().output() * _delta);
         });
     }
     
-    void updateWeights() {
+    /**
+     * The weights leaving this node are numbered from offset in the 
+     * optimizer's state.
+     */
+    void updateWeights(Optimizer optimizer, int offset) {
+        for (Weight weight : _children)
+            weight.updateWeight(optimizer, offset++);
+    }
+    
+    void accumulatedEdw() {
         _children.forEach((weight) -> {
-            weight.updateWeight();
+            weight.accumulatedEdw();
         });
     }
+    
+    void updateWeights(Optimizer optimizer, int offset, int batchSize) {
+        for (Weight weight : _children)
+            weight.updateWeight(optimizer, offset++, batchSize);
+    }
 }
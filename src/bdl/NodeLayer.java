@@ -0,0 +1,216 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.activationFunctions.ActivationFunction;
+import bdl.optimizers.Optimizer;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ *
+ * @author chuckwolber
+ */
+class NodeLayer extends Layer
+{
+    private final ArrayList<Node> _nodes = new ArrayList<>();
+    private final ActivationFunction _function;
+    
+    NodeLayer(int nodes, ActivationFunction func) {
+        _function = func;
+        for (int i=0; i<nodes; i++)
+            _nodes.add(new Node(func));
+    }
+    
+    ArrayList<Node> nodes() {
+        return _nodes;
+    }
+    
+    @Override
+    int size() {
+        return _nodes.size();
+    }
+    
+    @Override
+    void initializeWeights() {
+        _nodes.forEach((node) -> {
+            node.initializeWeights();
+        });
+    }
+    
+    @Override
+    void setInput(double[] inputValues) {
+        if (inputValues.length != _nodes.size())
+            return;
+        for (int i=0; i<_nodes.size(); i++)
+            _nodes.get(i).sensorInput(inputValues[i]);
+    }
+    
+    @Override
+    void setInput(int[] indices, double[] values) {
+        if (indices.length != values.length)
+            return;
+        _nodes.forEach((node) -> {
+            node.sensorInput(0.0);
+        });
+        for (int k=0; k<indices.length; k++)
+            _nodes.get(indices[k]).sensorInput(values[k]);
+    }
+    
+    @Override
+    ArrayList<Double> output() {
+        ArrayList<Double> output = new ArrayList<>();
+        _nodes.forEach((node) -> {
+            output.add(node.output());
+        });
+        return output;
+    }
+    
+    @Override
+    void forwardPropagate() {
+        forEachNode((node) -> {
+            node.forwardPropagate();
+        });
+    }
+    
+    @Override
+    double currentError(double[] expectedValues) {
+        if (expectedValues.length != _nodes.size())
+            return -1.0;
+        double currentError = 0.0;
+        for (int i=0; i<_nodes.size(); i++)
+            currentError += _nodes.get(i).currentError(expectedValues[i]);
+        return 0.5*currentError;
+    }
+    
+    @Override
+    void calculateErrorRate(double[] expectedValues) {
+        if (expectedValues.length != _nodes.size())
+            return;
+        for (int i=0; i<_nodes.size(); i++)
+            _nodes.get(i).calculateErrorRate(expectedValues[i]);
+    }
+    
+    @Override
+    void backwardPropagate() {
+        forEachNode((node) -> {
+            node.backwardPropagate();
+        });
+    }
+    
+    @Override
+    void updateWeights() {
+        Optimizer optimizer = optimizer();
+        int fanOut = fanOut();
+        forRange(_nodes.size(), (from, to) -> {
+            for (int i=from; i<to; i++)
+                _nodes.get(i).updateWeights(optimizer, weightOffset() + i*fanOut);
+        });
+    }
+    
+    @Override
+    void accumulatedEdw() {
+        forEachNode((node) -> {
+            node.accumulatedEdw();
+        });
+    }
+    
+    @Override
+    void updateWeights(int batchSize) {
+        Optimizer optimizer = optimizer();
+        int fanOut = fanOut();
+        forRange(_nodes.size(), (from, to) -> {
+            for (int i=from; i<to; i++)
+                _nodes.get(i).updateWeights(optimizer, weightOffset() + i*fanOut, batchSize);
+        });
+    }
+    
+    @Override
+    int weightCount() {
+        return _nodes.size() * fanOut();
+    }
+    
+    /**
+     * Every node in a layer is linked to every node in the next, so they all 
+     * have the same number of outgoing weights.
+     */
+    private int fanOut() {
+        return _nodes.isEmpty() ? 0 : _nodes.get(0).fanOut();
+    }
+    
+    private void forEachNode(Consumer<Node> action) {
+        forRange(_nodes.size(), (from, to) -> {
+            for (int i=from; i<to; i++)
+                action.accept(_nodes.get(i));
+        });
+    }
+    
+    @Override
+    ActivationFunction activationFunction() {
+        return _function;
+    }
+    
+    @Override
+    int getWeights(double[] dest, int offset) {
+        for (Node node : _nodes)
+            offset = node.getWeights(dest, offset);
+        return offset;
+    }
+    
+    @Override
+    int setWeights(double[] src, int offset) {
+        for (Node node : _nodes)
+            offset = node.setWeights(src, offset);
+        return offset;
+    }
+    
+    @Override
+    int takedEdwSum(double[] dest, int offset) {
+        for (Node node : _nodes)
+            offset = node.takedEdwSum(dest, offset);
+        return offset;
+    }
+    
+    @Override
+    int getBiases(double[] dest, int offset) {
+        for (Node node : _nodes)
+            dest[offset++] = node.bias();
+        return offset;
+    }
+    
+    @Override
+    int setBiases(double[] src, int offset) {
+        for (Node node : _nodes)
+            node.setBias(src[offset++]);
+        return offset;
+    }
+    
+    @Override
+    void linkToLayer(Layer parentLayer) {
+        ((NodeLayer)parentLayer).nodes().forEach((parentNode)-> {
+            _nodes.forEach((node)-> {
+                node.linkToParent(parentNode);
+            });
+        });
+    }
+}
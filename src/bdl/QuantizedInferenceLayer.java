@@ -0,0 +1,138 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.activationFunctions.ActivationFunction;
+
+/**
+ * A fully connected InferenceLayer with 8 bit weights and integer arithmetic. 
+ * 
+ * Weights are stored as bytes, each a multiple of one weight step, where the 
+ * step is chosen so that the largest weight in the layer is LEVELS steps. 
+ * Inputs are rounded to multiples of an input step in the same way, using 
+ * the largest input seen during calibration, and anything beyond that is 
+ * clamped. The products are summed in ints, together with the biases, which 
+ * are kept as multiples of the product of the two steps. Only the sums are 
+ * turned back into doubles, for the activation function, so the outputs are 
+ * ordinary doubles that the next layer quantizes again with its own step.
+ * 
+ * Each product is at most LEVELS*LEVELS, so the sums cannot overflow for 
+ * layers with fewer than MAX_INPUTS inputs, once each bias is clamped to 
+ * whatever room the products leave.
+ * 
+ * The sums are kept in the caller's intScratch, which needs outputs() ints. 
+ * The layer holds nothing but its final fields, as InferenceLayer requires.
+ * 
+ * @author chuckwolber
+ */
+class QuantizedInferenceLayer extends InferenceLayer
+{
+    static final int LEVELS = 127;
+    static final int MAX_INPUTS = Integer.MAX_VALUE / (LEVELS*LEVELS) - 1;
+    
+    private final int _inputs;
+    private final int _outputs;
+    private final byte[] _w;
+    private final int[] _b;
+    private final double _inputSteps;
+    private final double _outputStep;
+    private final ActivationFunction _function;
+    
+    /**
+     * w is laid out as for DenseInferenceLayer, with w[j*outputs + i] 
+     * connecting input j to output i. inputRange is the largest absolute 
+     * input expected.
+     */
+    QuantizedInferenceLayer(int inputs, int outputs, double[] w, double[] b, double inputRange, ActivationFunction function) {
+        if (inputs > MAX_INPUTS)
+            throw new IllegalArgumentException("Cannot quantize a layer with more than " + MAX_INPUTS + " inputs.");
+        _inputs = inputs;
+        _outputs = outputs;
+        _function = function;
+        
+        double weightStep = step(w);
+        double inputStep = inputRange > 0.0 ? inputRange / LEVELS : 1.0;
+        _inputSteps = 1.0 / inputStep;
+        _outputStep = weightStep * inputStep;
+        
+        _w = new byte[w.length];
+        for (int k=0; k<w.length; k++)
+            _w[k] = (byte)quantize(w[k] / weightStep);
+        _b = new int[outputs];
+        double largestBias = Integer.MAX_VALUE - (double)inputs*LEVELS*LEVELS;
+        for (int i=0; i<outputs; i++)
+            _b[i] = (int)Math.max(-largestBias, Math.min(largestBias, Math.rint(b[i] / _outputStep)));
+    }
+    
+    private static double step(double[] values) {
+        double largest = 0.0;
+        for (double value : values)
+            largest = Math.max(largest, Math.abs(value));
+        return largest > 0.0 ? largest / LEVELS : 1.0;
+    }
+    
+    private static int quantize(double steps) {
+        return (int)Math.max(-LEVELS, Math.min(LEVELS, Math.rint(steps)));
+    }
+    
+    @Override
+    int inputs() {
+        return _inputs;
+    }
+    
+    @Override
+    int outputs() {
+        return _outputs;
+    }
+    
+    @Override
+    long parameterBytes() {
+        return _w.length + 4L*_b.length + 16;
+    }
+    
+    /**
+     * Inputs that round to zero are skipped, which saves a pass over a row of 
+     * weights for every input that is zero, as after a ReLU.
+     */
+    @Override
+    int intScratchSize() {
+        return _outputs;
+    }
+    
+    @Override
+    void forward(double[] in, int inOffset, double[] out, int outOffset, int[] intScratch) {
+        int[] sums = intScratch;
+        System.arraycopy(_b, 0, sums, 0, _outputs);
+        for (int j=0; j<_inputs; j++) {
+            int q = quantize(in[inOffset + j] * _inputSteps);
+            if (q == 0)
+                continue;
+            int row = j*_outputs;
+            for (int i=0; i<_outputs; i++)
+                sums[i] += _w[row + i] * q;
+        }
+        for (int i=0; i<_outputs; i++)
+            out[outOffset + i] = sums[i] * _outputStep;
+        _function.evalFunction(out, out, outOffset, outOffset + _outputs);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits the range [from, to) in half until each piece is no larger than 
+ * grain, and runs the body on each piece in a ForkJoinPool.
+ * 
+ * @author chuckwolber
+ */
+class RangeTask extends RecursiveAction
+{
+    interface Body
+    {
+        void run(int from, int to);
+    }
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final Body _body;
+    private final int _from;
+    private final int _to;
+    private final int _grain;
+    
+    RangeTask(Body body, int from, int to, int grain) {
+        _body = body;
+        _from = from;
+        _to = to;
+        _grain = Math.max(1, grain);
+    }
+    
+    @Override
+    protected void compute() {
+        if (_to - _from <= _grain) {
+            _body.run(_from, _to);
+            return;
+        }
+        int middle = (_from + _to) >>> 1;
+        invokeAll(new RangeTask(_body, _from, middle, _grain),
+                  new RangeTask(_body, middle, _to, _grain));
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.activationFunctions.ActivationFunction;
+
+/**
+ * An InferenceLayer for a pruned layer, which keeps only its non-zero weights,
+ * in compressed sparse row form. Row i lists the inputs connected to output i:
+ * _inputIndex[k] and _w[k] for k from _rowStart[i] to _rowStart[i+1]. 
+ * 
+ * Each output adds up its connections in ascending order of input, as 
+ * DenseInferenceLayer does, so the two give the same results for the same 
+ * weights. Skipping a zero weight only leaves out a product that is zero.
+ * 
+ * @author chuckwolber
+ */
+class SparseInferenceLayer extends InferenceLayer
+{
+    private final int _inputs;
+    private final int _outputs;
+    private final int[] _rowStart;
+    private final int[] _inputIndex;
+    private final double[] _w;
+    private final double[] _b;
+    private final ActivationFunction _function;
+    
+    /**
+     * w is laid out as for DenseInferenceLayer, with w[j*outputs + i] 
+     * connecting input j to output i.
+     */
+    SparseInferenceLayer(int inputs, int outputs, double[] w, double[] b, ActivationFunction function) {
+        _inputs = inputs;
+        _outputs = outputs;
+        _b = b;
+        _function = function;
+        
+        _rowStart = new int[outputs + 1];
+        for (int j=0; j<inputs; j++)
+            for (int i=0; i<outputs; i++)
+                if (w[j*outputs + i] != 0.0)
+                    _rowStart[i+1]++;
+        for (int i=0; i<outputs; i++)
+            _rowStart[i+1] += _rowStart[i];
+        
+        _inputIndex = new int[_rowStart[outputs]];
+        _w = new double[_rowStart[outputs]];
+        int[] next = new int[outputs];
+        System.arraycopy(_rowStart, 0, next, 0, outputs);
+        for (int j=0; j<inputs; j++) {
+            for (int i=0; i<outputs; i++) {
+                double weight = w[j*outputs + i];
+                if (weight == 0.0)
+                    continue;
+                _inputIndex[next[i]] = j;
+                _w[next[i]++] = weight;
+            }
+        }
+    }
+    
+    /**
+     * The fraction of w that is zero.
+     */
+    static double sparsity(double[] w, int from, int to) {
+        int zeros = 0;
+        for (int k=from; k<to; k++)
+            if (w[k] == 0.0)
+                zeros++;
+        return to > from ? (double)zeros/(to - from) : 0.0;
+    }
+    
+    @Override
+    int inputs() {
+        return _inputs;
+    }
+    
+    @Override
+    int outputs() {
+        return _outputs;
+    }
+    
+    @Override
+    long parameterBytes() {
+        return 12L*_w.length + 4L*_rowStart.length + 8L*_b.length;
+    }
+    
+    @Override
+    void forward(double[] in, int inOffset, double[] out, int outOffset, int[] intScratch) {
+        for (int i=0; i<_outputs; i++) {
+            double x = 0.0;
+            for (int k=_rowStart[i]; k<_rowStart[i+1]; k++)
+                x += _w[k] * in[inOffset + _inputIndex[k]];
+            out[outOffset + i] = x + _b[i];
+        }
+        _function.evalFunction(out, out, outOffset, outOffset + _outputs);
+    }
+}
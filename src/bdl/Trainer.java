@@ -0,0 +1,304 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+import bdl.data.Batch;
+import bdl.data.BatchPrefetcher;
+import bdl.data.DataSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Owns the epoch loop that examples.XOR used to write out by hand, and reports
+ * on it through TrainingListeners instead of printing.
+ * 
+ * Every reportInterval epochs, and after the last epoch, each listener is 
+ * given a TrainingMetrics with the epoch's loss, the samples per second, and 
+ * how far the weights moved. Nothing is measured between reports except the 
+ * loss, which Network.trainBatch() computes anyway, so an interval of a few 
+ * hundred epochs costs next to nothing. Per-phase timing calls System.nanoTime()
+ * around every phase of every sample, so it is off unless asked for.
+ * 
+ * Training can also stop before the last epoch. A target error stops it as 
+ * soon as an epoch's loss falls to that value. A validation set is evaluated 
+ * at every report, and stops training once it has gone patience reports in a 
+ * row without improving. With restoreBestWeights set, the Network is left with
+ * the weights from the report with the lowest loss: the validation loss if 
+ * there is a validation set, and the training loss otherwise.
+ * 
+ * @author chuckwolber
+ */
+public class Trainer
+{
+    private final Network _network;
+    private final DataParallelTrainer _parallel;
+    private final ArrayList<TrainingListener> _listeners = new ArrayList<>();
+    private int _batchSize = 1;
+    private int _reportInterval = 1;
+    private boolean _phaseTiming;
+    private double _targetError = -1.0;
+    private double[][] _validationInputs;
+    private double[][] _validationTargets;
+    private int _patience;
+    private boolean _restoreBestWeights;
+    
+    private double _bestLoss;
+    private int _reportsSinceBest;
+    private double[] _bestWeights;
+    private int _epochsTrained;
+    
+    private double[] _intervalWeights;
+    private double[] _currentWeights;
+    private long _intervalStart;
+    private long _intervalSamples;
+    private long _forwardNanos;
+    private long _backwardNanos;
+    private long _updateNanos;
+    
+    public Trainer(Network network) {
+        _network = network;
+        _parallel = null;
+    }
+    
+    /**
+     * Trains with a DataParallelTrainer over the given pool. Phase timing is 
+     * not available in this mode.
+     */
+    public Trainer(Network network, ForkJoinPool pool) {
+        _network = network;
+        _parallel = new DataParallelTrainer(network, pool);
+    }
+    
+    public void setBatchSize(int batchSize) {
+        _batchSize = Math.max(1, batchSize);
+    }
+    
+    public void setReportInterval(int epochs) {
+        _reportInterval = Math.max(1, epochs);
+    }
+    
+    public void setPhaseTiming(boolean phaseTiming) {
+        _phaseTiming = phaseTiming;
+    }
+    
+    /**
+     * Stops training after the first epoch whose loss is at or below 
+     * targetError. A negative value, the default, never stops.
+     */
+    public void setTargetError(double targetError) {
+        _targetError = targetError;
+    }
+    
+    /**
+     * Evaluates the given samples at every report and stops training once the
+     * validation loss has not improved for patience reports in a row. A 
+     * patience of 0 evaluates without ever stopping. Null inputs remove the 
+     * validation set.
+     */
+    public void setValidation(double[][] inputs, double[][] targets, int patience) {
+        if (inputs != null && (targets == null || inputs.length != targets.length))
+            throw new IllegalArgumentException("Validation inputs and targets differ in length.");
+        _validationInputs = inputs;
+        _validationTargets = inputs == null ? null : targets;
+        _patience = Math.max(0, patience);
+    }
+    
+    public void setRestoreBestWeights(boolean restoreBestWeights) {
+        _restoreBestWeights = restoreBestWeights;
+    }
+    
+    /**
+     * The number of epochs the last call to train() ran before it finished or 
+     * stopped early.
+     */
+    public int epochsTrained() {
+        return _epochsTrained;
+    }
+    
+    public void addListener(TrainingListener listener) {
+        _listeners.add(listener);
+    }
+    
+    public void removeListener(TrainingListener listener) {
+        _listeners.remove(listener);
+    }
+    
+    /**
+     * Runs the given number of epochs over the samples, in order. Returns the 
+     * loss of the final epoch.
+     */
+    public double train(double[][] inputs, double[][] targets, int epochs) {
+        if (inputs.length != targets.length)
+            return -1.0;
+        double loss = 0.0;
+        startTraining();
+        for (int epoch=0; epoch<epochs; epoch++) {
+            loss = 0.0;
+            for (int from=0; from<inputs.length; from+=_batchSize)
+                loss += trainBatch(inputs, targets, from, Math.min(from + _batchSize, inputs.length));
+            _intervalSamples += inputs.length;
+            if (endEpoch(epoch, epochs, loss))
+                break;
+        }
+        finishTraining();
+        return loss;
+    }
+    
+    /**
+     * Streams the given number of epochs from source, reading ahead on a 
+     * background thread. Returns the loss of the final epoch.
+     */
+    public double train(DataSource source, int epochs) throws IOException {
+        double loss = 0.0;
+        startTraining();
+        try (BatchPrefetcher batches = new BatchPrefetcher(source, _batchSize, 
+                BatchPrefetcher.DEFAULT_BUFFERS, epochs)) {
+            for (int epoch=0; epoch<epochs; epoch++) {
+                loss = 0.0;
+                Batch batch;
+                while ((batch = batches.next()) != null) {
+                    loss += trainBatch(batch.inputs(), batch.targets(), 0, batch.size());
+                    _intervalSamples += batch.size();
+                }
+                if (endEpoch(epoch, epochs, loss))
+                    break;
+            }
+        }
+        finishTraining();
+        return loss;
+    }
+    
+    private double trainBatch(double[][] inputs, double[][] targets, int from, int to) {
+        if (_parallel != null)
+            return _parallel.trainBatch(inputs, targets, from, to);
+        if (!_phaseTiming)
+            return _network.trainBatch(inputs, targets, from, to);
+        
+        double error = 0.0;
+        for (int s=from; s<to; s++) {
+            long start = System.nanoTime();
+            _network.setInput(inputs[s]);
+            _network.forwardPropagate();
+            long forward = System.nanoTime();
+            error += _network.currentError(targets[s]);
+            _network.calculateErrorRate(targets[s]);
+            _network.backwardPropagate();
+            _network.accumulatedEdw();
+            long backward = System.nanoTime();
+            _forwardNanos += forward - start;
+            _backwardNanos += backward - forward;
+        }
+        long start = System.nanoTime();
+        _network.updateWeights(to - from);
+        _updateNanos += System.nanoTime() - start;
+        return error;
+    }
+    
+    /**
+     * Reports if this epoch ends an interval, and returns true if training 
+     * should stop here.
+     */
+    private boolean endEpoch(int epoch, int epochs, double loss) {
+        _epochsTrained = epoch + 1;
+        boolean stop = _targetError >= 0.0 && loss <= _targetError;
+        if (!stop && (epoch+1) % _reportInterval != 0 && epoch != epochs-1)
+            return false;
+        
+        double validationLoss = validationLoss();
+        double monitored = Double.isNaN(validationLoss) ? loss : validationLoss;
+        if (monitored < _bestLoss) {
+            _bestLoss = monitored;
+            _reportsSinceBest = 0;
+            if (_restoreBestWeights)
+                _network.getWeights(_bestWeights);
+        } else {
+            _reportsSinceBest++;
+            if (_validationInputs != null && _patience > 0 && _reportsSinceBest >= _patience)
+                stop = true;
+        }
+        
+        if (!_listeners.isEmpty()) {
+            TrainingMetrics metrics = new TrainingMetrics(epoch, loss, _intervalSamples, 
+                    System.nanoTime() - _intervalStart, _forwardNanos, _backwardNanos, 
+                    _updateNanos, updateNorm(), validationLoss);
+            for (TrainingListener listener : _listeners)
+                listener.epochCompleted(metrics);
+        }
+        startInterval();
+        return stop;
+    }
+    
+    private double validationLoss() {
+        if (_validationInputs == null)
+            return Double.NaN;
+        double loss = 0.0;
+        for (int s=0; s<_validationInputs.length; s++) {
+            _network.setInput(_validationInputs[s]);
+            _network.forwardPropagate();
+            loss += _network.currentError(_validationTargets[s]);
+        }
+        return loss;
+    }
+    
+    private void startTraining() {
+        _epochsTrained = 0;
+        _bestLoss = Double.POSITIVE_INFINITY;
+        _reportsSinceBest = 0;
+        if (_restoreBestWeights && _bestWeights == null)
+            _bestWeights = new double[_network.weightCount()];
+        startInterval();
+    }
+    
+    private void finishTraining() {
+        if (_restoreBestWeights && _bestLoss < Double.POSITIVE_INFINITY)
+            _network.setWeights(_bestWeights);
+    }
+    
+    private void startInterval() {
+        if (!_listeners.isEmpty()) {
+            if (_intervalWeights == null)
+                _intervalWeights = new double[_network.weightCount()];
+            _network.getWeights(_intervalWeights);
+        }
+        _intervalSamples = 0;
+        _forwardNanos = 0;
+        _backwardNanos = 0;
+        _updateNanos = 0;
+        _intervalStart = System.nanoTime();
+    }
+    
+    private double updateNorm() {
+        if (_intervalWeights == null)
+            return 0.0;
+        if (_currentWeights == null)
+            _currentWeights = new double[_intervalWeights.length];
+        _network.getWeights(_currentWeights);
+        double sum = 0.0;
+        for (int k=0; k<_currentWeights.length; k++) {
+            double delta = _currentWeights[k] - _intervalWeights[k];
+            sum += delta*delta;
+        }
+        return Math.sqrt(sum);
+    }
+}
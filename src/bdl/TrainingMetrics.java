@@ -0,0 +1,128 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl;
+
+/**
+ * What a Trainer measured over one reporting interval, which ends with the 
+ * epoch given by epoch(). Loss is for that final epoch alone; the rates, 
+ * times and update norm cover the whole interval.
+ * 
+ * @author chuckwolber
+ */
+public class TrainingMetrics
+{
+    private final int _epoch;
+    private final double _loss;
+    private final long _samples;
+    private final long _elapsedNanos;
+    private final long _forwardNanos;
+    private final long _backwardNanos;
+    private final long _updateNanos;
+    private final double _updateNorm;
+    private final double _validationLoss;
+    
+    TrainingMetrics(int epoch, double loss, long samples, long elapsedNanos, 
+            long forwardNanos, long backwardNanos, long updateNanos, double updateNorm, 
+            double validationLoss) {
+        _epoch = epoch;
+        _loss = loss;
+        _samples = samples;
+        _elapsedNanos = elapsedNanos;
+        _forwardNanos = forwardNanos;
+        _backwardNanos = backwardNanos;
+        _updateNanos = updateNanos;
+        _updateNorm = updateNorm;
+        _validationLoss = validationLoss;
+    }
+    
+    /**
+     * The epoch just completed, counting from 0.
+     */
+    public int epoch() {
+        return _epoch;
+    }
+    
+    /**
+     * The sum of Network.currentError() over every sample in the epoch.
+     */
+    public double loss() {
+        return _loss;
+    }
+    
+    /**
+     * Samples trained on during the interval.
+     */
+    public long samples() {
+        return _samples;
+    }
+    
+    public long elapsedNanos() {
+        return _elapsedNanos;
+    }
+    
+    public double samplesPerSecond() {
+        if (_elapsedNanos == 0)
+            return 0.0;
+        return _samples * 1e9 / _elapsedNanos;
+    }
+    
+    /*
+     * Time spent in each phase of training. These are only measured when the 
+     * Trainer has phase timing turned on, and are 0 otherwise.
+     */
+    
+    public long forwardNanos() {
+        return _forwardNanos;
+    }
+    
+    public long backwardNanos() {
+        return _backwardNanos;
+    }
+    
+    public long updateNanos() {
+        return _updateNanos;
+    }
+    
+    /**
+     * The Euclidean length of the change in all weights over the interval.
+     */
+    public double updateNorm() {
+        return _updateNorm;
+    }
+    
+    /**
+     * The sum of Network.currentError() over the Trainer's validation set at 
+     * the end of the interval, or NaN if it has none.
+     */
+    public double validationLoss() {
+        return _validationLoss;
+    }
+    
+    @Override
+    public String toString() {
+        return "Epoch: " + _epoch + " Error: " + _loss 
+                + (Double.isNaN(_validationLoss) ? "" : " Validation error: " + _validationLoss)
+                + " Samples/s: " + Math.round(samplesPerSecond()) 
+                + " Update norm: " + _updateNorm;
+    }
+}
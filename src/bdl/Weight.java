@@ -22,6 +22,8 @@
 
 package bdl;
 
+import bdl.optimizers.Optimizer;
+
 /**
  *
  * @author chuckwolber
@@ -32,11 +34,7 @@ public class Weight
     private Node _parentNode;
     private Node _childNode;
     private double _dEdw;
-    private final Double _learningRate;
-    
-    public Weight(double learningRate) {
-        _learningRate = learningRate;
-    }
+    private double _dEdwSum;
     
     public Node parentNode() {
         return _parentNode;
@@ -70,8 +68,34 @@ public class Weight
         return _weight;
     }
     
-    public void updateWeight() {
-        _weight -= _dEdw * _learningRate;
+    /**
+     * index is this weight's position in Network.weights(), which is where the
+     * optimizer keeps its state for it.
+     */
+    public void updateWeight(Optimizer optimizer, int index) {
+        _weight -= optimizer.delta(index, _dEdw);
+    }
+    
+    /**
+     * Mini-batch training adds up ∂E/∂w over every sample in the batch and 
+     * then moves the weight once, by the average.
+     */
+    void accumulatedEdw() {
+        _dEdwSum += _dEdw;
+    }
+    
+    void updateWeight(Optimizer optimizer, int index, int batchSize) {
+        _weight -= optimizer.delta(index, _dEdwSum / batchSize);
+        _dEdwSum = 0.0;
+    }
+    
+    /**
+     * Returns the ∂E/∂w sum and clears it, without moving the weight.
+     */
+    double takedEdwSum() {
+        double sum = _dEdwSum;
+        _dEdwSum = 0.0;
+        return sum;
     }
     
     public void setWeight(double weight) {
@@ -30,4 +30,32 @@ public interface ActivationFunction
 {
     double evalFunction(double x);
     double evalFunctionDerivative(double x);
+    
+    /**
+     * f'(x), given that y = f(x) has already been calculated. Many functions 
+     * have a derivative that is cheaper to compute from y than from x, and 
+     * Backpropagation always has y on hand, so those functions should 
+     * override this.
+     */
+    default double evalFunctionDerivative(double x, double y) {
+        return evalFunctionDerivative(x);
+    }
+    
+    /**
+     * Evaluates a whole layer at once: y[i] = f(x[i]) for i in [from, to). 
+     * Implementations that can do better than one element at a time should 
+     * override this, and must give the same results as evalFunction().
+     */
+    default void evalFunction(double[] x, double[] y, int from, int to) {
+        for (int i=from; i<to; i++)
+            y[i] = evalFunction(x[i]);
+    }
+    
+    /**
+     * dydx[i] = f'(x[i]) for i in [from, to), where y[i] = f(x[i]).
+     */
+    default void evalFunctionDerivative(double[] x, double[] y, double[] dydx, int from, int to) {
+        for (int i=from; i<to; i++)
+            dydx[i] = evalFunctionDerivative(x[i], y[i]);
+    }
 }
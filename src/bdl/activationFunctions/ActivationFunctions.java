@@ -0,0 +1,89 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.activationFunctions;
+
+/**
+ * Gives each of the bundled activation functions a fixed number, so a saved 
+ * model can record which function each layer uses. Numbers are never reused.
+ * 
+ * @author chuckwolber
+ */
+public final class ActivationFunctions
+{
+    public static final int SIGMOID = 1;
+    public static final int TABLE_SIGMOID = 2;
+    /* 3 belonged to a rational sigmoid approximation that has been removed. */
+    public static final int RELU = 4;
+    public static final int LEAKY_RELU = 5;
+    public static final int TANH = 6;
+    public static final int HARD_SIGMOID = 7;
+    
+    private ActivationFunctions() {
+    }
+    
+    /**
+     * Returns the id of a bundled activation function, or -1 for any other 
+     * implementation.
+     */
+    public static int idOf(ActivationFunction function) {
+        if (function == null)
+            return -1;
+        Class<?> c = function.getClass();
+        if (c == SigmoidFunction.class)
+            return SIGMOID;
+        if (c == TableSigmoidFunction.class)
+            return TABLE_SIGMOID;
+        if (c == ReLUFunction.class)
+            return RELU;
+        if (c == LeakyReLUFunction.class)
+            return LEAKY_RELU;
+        if (c == TanhFunction.class)
+            return TANH;
+        if (c == HardSigmoidFunction.class)
+            return HARD_SIGMOID;
+        return -1;
+    }
+    
+    /**
+     * Returns a new instance of the activation function with the given id, or 
+     * null if the id is unknown.
+     */
+    public static ActivationFunction forId(int id) {
+        switch (id) {
+            case SIGMOID:
+                return new SigmoidFunction();
+            case TABLE_SIGMOID:
+                return new TableSigmoidFunction();
+            case RELU:
+                return new ReLUFunction();
+            case LEAKY_RELU:
+                return new LeakyReLUFunction();
+            case TANH:
+                return new TanhFunction();
+            case HARD_SIGMOID:
+                return new HardSigmoidFunction();
+            default:
+                return null;
+        }
+    }
+}
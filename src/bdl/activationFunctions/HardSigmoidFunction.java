@@ -0,0 +1,56 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.activationFunctions;
+
+/**
+ * A piecewise linear stand in for the sigmoid: f(x) = 0.2x + 0.5, clamped to 
+ * [0, 1]. Only a multiply, an add and two comparisons per node.
+ * 
+ * @author chuckwolber
+ */
+public class HardSigmoidFunction implements ActivationFunction
+{
+    private static final double SLOPE = 0.2;
+    
+    @Override
+    public double evalFunction(double x) {
+        return Math.max(0.0, Math.min(1.0, SLOPE * x + 0.5));
+    }
+    
+    @Override
+    public double evalFunctionDerivative(double x) {
+        double eval = this.evalFunction(x);
+        return evalFunctionDerivative(x, eval);
+    }
+    
+    @Override
+    public double evalFunctionDerivative(double x, double y) {
+        return (y > 0.0 && y < 1.0) ? SLOPE : 0.0;
+    }
+    
+    @Override
+    public void evalFunction(double[] x, double[] y, int from, int to) {
+        for (int i=from; i<to; i++)
+            y[i] = evalFunction(x[i]);
+    }
+}
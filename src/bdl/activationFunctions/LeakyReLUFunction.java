@@ -0,0 +1,52 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.activationFunctions;
+
+/**
+ * Like ReLUFunction, but negative inputs are scaled by SLOPE instead of being 
+ * cut off, so a node whose input has gone negative still has a gradient to 
+ * recover with. The slope is fixed so that a saved model can name this 
+ * function by its id alone.
+ * 
+ * @author chuckwolber
+ */
+public class LeakyReLUFunction implements ActivationFunction
+{
+    public static final double SLOPE = 0.01;
+    
+    @Override
+    public double evalFunction(double x) {
+        return Math.max(x, SLOPE * x);
+    }
+    
+    @Override
+    public double evalFunctionDerivative(double x) {
+        return x > 0.0 ? 1.0 : SLOPE;
+    }
+    
+    @Override
+    public void evalFunction(double[] x, double[] y, int from, int to) {
+        for (int i=from; i<to; i++)
+            y[i] = Math.max(x[i], SLOPE * x[i]);
+    }
+}
@@ -38,4 +38,22 @@ public class SigmoidFunction implements ActivationFunction
         double eval = this.evalFunction(x);
         return eval * (1.0 - eval);
     }
+    
+    /**
+     * The same value as evalFunctionDerivative(x), without calling Math.exp().
+     */
+    @Override
+    public double evalFunctionDerivative(double x, double y) {
+        return y * (1.0 - y);
+    }
+    
+    /**
+     * A straight loop with no calls, which the JIT can compile to SIMD 
+     * instructions.
+     */
+    @Override
+    public void evalFunctionDerivative(double[] x, double[] y, double[] dydx, int from, int to) {
+        for (int i=from; i<to; i++)
+            dydx[i] = y[i] * (1.0 - y[i]);
+    }
 }
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.activationFunctions;
+
+/**
+ * The logistic sigmoid, read from a precomputed table with linear 
+ * interpolation between entries instead of calling Math.exp(). The table 
+ * covers [-16, 16] in steps of 1/64; outside of that the function is 
+ * saturated to 0 or 1.
+ * 
+ * The absolute difference from SigmoidFunction is never more than 
+ * MAX_ABSOLUTE_ERROR, for the function and for its derivative.
+ * 
+ * @author chuckwolber
+ */
+public class TableSigmoidFunction implements ActivationFunction
+{
+    public static final double MAX_ABSOLUTE_ERROR = 3e-6;
+    
+    private static final double RANGE = 16.0;
+    private static final double STEPS_PER_UNIT = 64.0;
+    private static final double[] TABLE = new double[(int)(2 * RANGE * STEPS_PER_UNIT) + 1];
+    
+    static {
+        for (int i=0; i<TABLE.length; i++)
+            TABLE[i] = 1.0 / (1.0 + Math.exp(-(i / STEPS_PER_UNIT - RANGE)));
+    }
+    
+    @Override
+    public double evalFunction(double x) {
+        if (x <= -RANGE)
+            return 0.0;
+        if (x >= RANGE)
+            return 1.0;
+        
+        double position = (x + RANGE) * STEPS_PER_UNIT;
+        int i = (int)position;
+        if (i == TABLE.length - 1)
+            return TABLE[i];
+        double fraction = position - i;
+        return TABLE[i] + (TABLE[i+1] - TABLE[i]) * fraction;
+    }
+    
+    @Override
+    public double evalFunctionDerivative(double x) {
+        double eval = this.evalFunction(x);
+        return eval * (1.0 - eval);
+    }
+    
+    @Override
+    public double evalFunctionDerivative(double x, double y) {
+        return y * (1.0 - y);
+    }
+    
+    /**
+     * The same loop as the interface default, but with a call site of its 
+     * own. Once a program uses a few activation functions the default loop's 
+     * call to evalFunction() is megamorphic and is not inlined, which made 
+     * this function about three times slower per value in ActivationAccuracy
+     * style timing with four functions in use (9.5 against 3.5 ns).
+     */
+    @Override
+    public void evalFunction(double[] x, double[] y, int from, int to) {
+        for (int i=from; i<to; i++)
+            y[i] = evalFunction(x[i]);
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.activationFunctions;
+
+/**
+ * The hyperbolic tangent. Zero centered, unlike the sigmoid, which tends to 
+ * help the layer after it converge.
+ * 
+ * @author chuckwolber
+ */
+public class TanhFunction implements ActivationFunction
+{
+    @Override
+    public double evalFunction(double x) {
+        return Math.tanh(x);
+    }
+    
+    @Override
+    public double evalFunctionDerivative(double x) {
+        double eval = this.evalFunction(x);
+        return 1.0 - eval * eval;
+    }
+    
+    @Override
+    public double evalFunctionDerivative(double x, double y) {
+        return 1.0 - y * y;
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.data;
+
+import java.io.IOException;
+
+/**
+ * A reusable block of samples. The arrays are allocated once, at the batch 
+ * size, and refilled in place; only the first size() rows of each are valid.
+ * 
+ * @author chuckwolber
+ */
+public class Batch
+{
+    private final double[][] _inputs;
+    private final double[][] _targets;
+    private int _size;
+    
+    public Batch(int capacity, int inputs, int targets) {
+        _inputs = new double[capacity][inputs];
+        _targets = new double[capacity][targets];
+    }
+    
+    public double[][] inputs() {
+        return _inputs;
+    }
+    
+    public double[][] targets() {
+        return _targets;
+    }
+    
+    public int size() {
+        return _size;
+    }
+    
+    public int capacity() {
+        return _inputs.length;
+    }
+    
+    /**
+     * Reads up to capacity() samples from source. Returns the number read, 
+     * which is less than capacity() only at the end of the source.
+     */
+    public int fill(DataSource source) throws IOException {
+        _size = 0;
+        while (_size < _inputs.length && source.next(_inputs[_size], _targets[_size]))
+            _size++;
+        return _size;
+    }
+    
+    void clear() {
+        _size = 0;
+    }
+}
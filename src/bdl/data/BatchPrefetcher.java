@@ -0,0 +1,186 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads batches from a DataSource on a background thread, so the training 
+ * loop never waits on I/O as long as reading keeps up with training.
+ * 
+ * A fixed set of Batch buffers cycles between the two threads: the reader 
+ * fills free buffers, and the trainer takes full ones. Nothing is allocated 
+ * once the prefetcher is running. The reader resets the source before it 
+ * starts, so reading always begins at the first sample, however far an 
+ * earlier reader got. When the source runs out, next() returns null to mark 
+ * the end of the epoch, and the reader resets the source and carries 
+ * straight on with the next epoch, until it has read the number of epochs it 
+ * was asked for. After the last one it leaves the source where it is and 
+ * stops, and next() keeps returning null.
+ * 
+ * close() never interrupts the reader, which could break a source in the 
+ * middle of I/O. It lets the reader finish the batch it is filling, and stops
+ * it with a marker buffer instead.
+ * 
+ * The prefetcher does not close the source; whoever opened it should.
+ * 
+ * @author chuckwolber
+ */
+public class BatchPrefetcher implements Closeable
+{
+    public static final int DEFAULT_BUFFERS = 3;
+    
+    private final DataSource _source;
+    private final int _epochs;
+    private final BlockingQueue<Batch> _free;
+    private final BlockingQueue<Batch> _full;
+    private final Batch _stop;
+    private final Thread _thread;
+    private volatile Throwable _failure;
+    private volatile Batch _failed;
+    private volatile boolean _closed;
+    private Batch _current;
+    private int _epochsRead;
+    
+    /**
+     * Reads epoch after epoch until closed.
+     */
+    public BatchPrefetcher(DataSource source, int batchSize) {
+        this(source, batchSize, DEFAULT_BUFFERS, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * buffers is the number of Batch buffers to cycle; it must be at least 2.
+     */
+    public BatchPrefetcher(DataSource source, int batchSize, int buffers) {
+        this(source, batchSize, buffers, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Reads the given number of epochs, then stops.
+     */
+    public BatchPrefetcher(DataSource source, int batchSize, int buffers, int epochs) {
+        _source = source;
+        _epochs = epochs;
+        _free = new ArrayBlockingQueue<>(buffers + 1);
+        _full = new ArrayBlockingQueue<>(buffers);
+        for (int b=0; b<buffers; b++)
+            _free.add(new Batch(batchSize, source.inputs(), source.targets()));
+        _stop = new Batch(1, source.inputs(), source.targets());
+        _thread = new Thread(this::read, "bdl-prefetch");
+        _thread.setDaemon(true);
+        _thread.start();
+    }
+    
+    /**
+     * Returns the next batch, or null at the end of an epoch. The batch 
+     * returned stays valid until the next call. Once the source has failed, 
+     * every call throws the failure.
+     */
+    public Batch next() throws IOException {
+        if (_current != null) {
+            _free.add(_current);
+            _current = null;
+        }
+        if (_failed != null && _full.isEmpty())
+            throwFailure();
+        if (_epochsRead >= _epochs)
+            return null;
+        Batch batch;
+        try {
+            batch = _full.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (batch == _failed)
+            throwFailure();
+        if (batch.size() == 0) {
+            _epochsRead++;
+            _free.add(batch);
+            return null;
+        }
+        _current = batch;
+        return batch;
+    }
+    
+    @Override
+    public void close() {
+        _closed = true;
+        _free.offer(_stop);
+        try {
+            _thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Rethrows whatever stopped the reader, unchecked exceptions and errors 
+     * included, so next() fails the same way the source did.
+     */
+    private void throwFailure() throws IOException {
+        if (_failure instanceof IOException)
+            throw (IOException)_failure;
+        if (_failure instanceof RuntimeException)
+            throw (RuntimeException)_failure;
+        throw (Error)_failure;
+    }
+    
+    /**
+     * The background thread. A batch with no samples in it marks the end of 
+     * an epoch, or a failure if it is _failed.
+     */
+    private void read() {
+        boolean started = false;
+        int epochs = 0;
+        try {
+            while (epochs < _epochs) {
+                Batch batch = _free.take();
+                if (batch == _stop || _closed)
+                    return;
+                try {
+                    if (!started) {
+                        _source.reset();
+                        started = true;
+                    }
+                    if (batch.fill(_source) == 0 && ++epochs < _epochs)
+                        _source.reset();
+                } catch (IOException | RuntimeException | Error e) {
+                    batch.clear();
+                    _failure = e;
+                    _failed = batch;
+                    _full.put(batch);
+                    return;
+                }
+                _full.put(batch);
+            }
+        } catch (InterruptedException e) {
+            // Nothing else interrupts this thread, so just stop.
+        }
+    }
+}
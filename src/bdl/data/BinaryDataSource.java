@@ -0,0 +1,186 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads samples from a memory mapped binary file. The file is little endian:
+ * 
+ *   int    magic number, "BDLD"
+ *   int    format version
+ *   int    inputs per sample
+ *   int    targets per sample
+ *   long   number of samples
+ *   double[inputs + targets] for every sample, inputs first
+ * 
+ * The file is mapped a segment at a time, so it may be far larger than the 
+ * heap, and reading a sample is a bulk copy out of the page cache. Use write()
+ * to convert any other DataSource, such as a CsvDataSource, to this format.
+ * 
+ * @author chuckwolber
+ */
+public class BinaryDataSource implements DataSource
+{
+    private static final int MAGIC = 0x42444C44;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final long SEGMENT_BYTES = 1L << 28;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    
+    private final Path _path;
+    private final FileChannel _channel;
+    private final int _inputs;
+    private final int _targets;
+    private final long _rows;
+    private final long _rowsPerSegment;
+    private DoubleBuffer _segment;
+    private long _segmentStart;
+    private long _row;
+    
+    public BinaryDataSource(Path path) throws IOException {
+        _path = path;
+        _channel = FileChannel.open(path, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining())
+            if (_channel.read(header) < 0)
+                break;
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            _channel.close();
+            throw new IOException(path + " is not a binary data file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            _channel.close();
+            throw new IOException(path + " has unsupported version " + version);
+        }
+        _inputs = header.getInt();
+        _targets = header.getInt();
+        _rows = header.getLong();
+        if (_inputs <= 0 || _targets <= 0 || _rows < 0) {
+            _channel.close();
+            throw new IOException(path + " has a corrupt header");
+        }
+        _rowsPerSegment = Math.max(1, SEGMENT_BYTES / rowBytes());
+        reset();
+    }
+    
+    @Override
+    public int inputs() {
+        return _inputs;
+    }
+    
+    @Override
+    public int targets() {
+        return _targets;
+    }
+    
+    public long rows() {
+        return _rows;
+    }
+    
+    @Override
+    public boolean next(double[] input, double[] target) throws IOException {
+        if (_row >= _rows)
+            return false;
+        if (_segment == null || _row >= _segmentStart + _rowsPerSegment)
+            mapSegment(_row);
+        _segment.position((int)(_row - _segmentStart) * (_inputs + _targets));
+        _segment.get(input, 0, _inputs);
+        _segment.get(target, 0, _targets);
+        _row++;
+        return true;
+    }
+    
+    @Override
+    public void reset() {
+        _row = 0;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        _segment = null;
+        _channel.close();
+    }
+    
+    private long rowBytes() {
+        return 8L*(_inputs + _targets);
+    }
+    
+    private void mapSegment(long firstRow) throws IOException {
+        long rows = Math.min(_rowsPerSegment, _rows - firstRow);
+        _segment = _channel.map(FileChannel.MapMode.READ_ONLY, 
+                HEADER_BYTES + firstRow*rowBytes(), rows*rowBytes())
+                .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        _segmentStart = firstRow;
+    }
+    
+    /**
+     * Writes every sample in source, from its current position, to path in 
+     * the format described above. Samples are gathered in a buffer of 
+     * WRITE_BUFFER_BYTES, or one sample if that is larger, between writes.
+     */
+    public static void write(DataSource source, Path path) throws IOException {
+        if (source.inputs() <= 0 || source.targets() <= 0)
+            throw new IllegalArgumentException("Samples need at least one input and one target.");
+        int width = source.inputs() + source.targets();
+        if (width > (Integer.MAX_VALUE - HEADER_BYTES) / 8)
+            throw new IllegalArgumentException("Samples of " + width + " values are too wide.");
+        double[] input = new double[source.inputs()];
+        double[] target = new double[source.targets()];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(WRITE_BUFFER_BYTES, HEADER_BYTES + 8*width))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        long rows = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, 
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(source.inputs())
+                    .putInt(source.targets()).putLong(0);
+            while (source.next(input, target)) {
+                if (buffer.remaining() < 8*width)
+                    drain(channel, buffer);
+                for (double value : input)
+                    buffer.putDouble(value);
+                for (double value : target)
+                    buffer.putDouble(value);
+                rows++;
+            }
+            drain(channel, buffer);
+            buffer.putLong(rows).flip();
+            channel.write(buffer, 16);
+        }
+    }
+    
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Streams samples from a comma separated file with one sample per line: the 
+ * input values followed by the target values, and nothing else. Blank lines 
+ * are skipped. The file is read sequentially and never held in memory.
+ * 
+ * @author chuckwolber
+ */
+public class CsvDataSource implements DataSource
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private final Path _path;
+    private final int _inputs;
+    private final int _targets;
+    private final boolean _header;
+    private BufferedReader _reader;
+    private long _line;
+    
+    public CsvDataSource(Path path, int inputs, int targets) throws IOException {
+        this(path, inputs, targets, false);
+    }
+    
+    /**
+     * If header is true the first line of the file is skipped.
+     */
+    public CsvDataSource(Path path, int inputs, int targets, boolean header) throws IOException {
+        _path = path;
+        _inputs = inputs;
+        _targets = targets;
+        _header = header;
+        reset();
+    }
+    
+    @Override
+    public int inputs() {
+        return _inputs;
+    }
+    
+    @Override
+    public int targets() {
+        return _targets;
+    }
+    
+    @Override
+    public boolean next(double[] input, double[] target) throws IOException {
+        String line;
+        do {
+            line = _reader.readLine();
+            _line++;
+            if (line == null)
+                return false;
+        } while (line.trim().isEmpty());
+        
+        int start = 0;
+        for (int column=0; column<_inputs+_targets; column++) {
+            int end = line.indexOf(',', start);
+            if (end < 0)
+                end = line.length();
+            if (start > line.length())
+                throw new IOException(_path + ":" + _line + " has too few columns");
+            double value = Double.parseDouble(line.substring(start, end).trim());
+            if (column < _inputs)
+                input[column] = value;
+            else
+                target[column - _inputs] = value;
+            start = end + 1;
+        }
+        if (start <= line.length())
+            throw new IOException(_path + ":" + _line + " has too many columns");
+        return true;
+    }
+    
+    @Override
+    public final void reset() throws IOException {
+        close();
+        _reader = new BufferedReader(Files.newBufferedReader(_path, StandardCharsets.UTF_8), BUFFER_SIZE);
+        _line = 0;
+        if (_header) {
+            _reader.readLine();
+            _line++;
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (_reader != null)
+            _reader.close();
+        _reader = null;
+    }
+}
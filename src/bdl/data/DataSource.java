@@ -0,0 +1,50 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A stream of training samples, each an input vector and the target values 
+ * expected for it. Samples are read one at a time into arrays the caller 
+ * owns, so a DataSource never has to hold the whole data set in memory.
+ * 
+ * @author chuckwolber
+ */
+public interface DataSource extends Closeable
+{
+    int inputs();
+    int targets();
+    
+    /**
+     * Copies the next sample into input and target. Returns false, leaving 
+     * both untouched, once every sample has been read.
+     */
+    boolean next(double[] input, double[] target) throws IOException;
+    
+    /**
+     * Starts again from the first sample, ready for another epoch.
+     */
+    void reset() throws IOException;
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.data;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Shuffles another DataSource through a window of samples. The window is 
+ * filled from the source, and every call to next() hands out a random sample
+ * from the window and refills its slot with the next sample from the source.
+ * 
+ * A window as large as the data set gives a full shuffle. Smaller windows 
+ * only move samples so far from where they started, but need only window 
+ * samples worth of memory, whatever the size of the data set.
+ * 
+ * @author chuckwolber
+ */
+public class ShuffledDataSource implements DataSource
+{
+    private final DataSource _source;
+    private final Random _random;
+    private final double[][] _inputs;
+    private final double[][] _targets;
+    private int _count;
+    
+    public ShuffledDataSource(DataSource source, int window, long seed) throws IOException {
+        _source = source;
+        _random = new Random(seed);
+        _inputs = new double[window][source.inputs()];
+        _targets = new double[window][source.targets()];
+        fill();
+    }
+    
+    @Override
+    public int inputs() {
+        return _source.inputs();
+    }
+    
+    @Override
+    public int targets() {
+        return _source.targets();
+    }
+    
+    @Override
+    public boolean next(double[] input, double[] target) throws IOException {
+        if (_count == 0)
+            return false;
+        int k = _random.nextInt(_count);
+        System.arraycopy(_inputs[k], 0, input, 0, input.length);
+        System.arraycopy(_targets[k], 0, target, 0, target.length);
+        if (!_source.next(_inputs[k], _targets[k])) {
+            _count--;
+            swap(_inputs, k, _count);
+            swap(_targets, k, _count);
+        }
+        return true;
+    }
+    
+    @Override
+    public void reset() throws IOException {
+        _source.reset();
+        fill();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        _source.close();
+    }
+    
+    private void fill() throws IOException {
+        _count = 0;
+        while (_count < _inputs.length && _source.next(_inputs[_count], _targets[_count]))
+            _count++;
+    }
+    
+    private static void swap(double[][] rows, int a, int b) {
+        double[] row = rows[a];
+        rows[a] = rows[b];
+        rows[b] = row;
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.distributed;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes gradients and parameter vectors to a stream in a compact binary 
+ * form, and reads them back.
+ * 
+ * A codec with a density of 1 sends every value as a double, so nothing is 
+ * lost. A lower density sends only the largest density fraction of the 
+ * entries, by magnitude: top-k compression. Each entry sent costs a float 
+ * and the gap since the last index sent, as a varint, which is usually one 
+ * or two bytes. The entries that are not sent are not thrown away. They are 
+ * kept as a residual and added to the next gradient, so every part of the 
+ * gradient reaches the server sooner or later. Each encoder keeps its own 
+ * residual, so a worker needs its own codec.
+ * 
+ * A message starts with a byte for its form, DENSE or SPARSE, and an int for 
+ * the number of values it holds.
+ * 
+ * @author chuckwolber
+ */
+public class GradientCodec
+{
+    static final byte DENSE = 0;
+    static final byte SPARSE = 1;
+    
+    private final double _density;
+    private final double[] _residual;
+    private final double[] _magnitudes;
+    private final int[] _indices;
+    private byte[] _bytes = new byte[0];
+    
+    /**
+     * A codec for gradients of length values, which sends the given fraction 
+     * of them each time, 0 < density <= 1.
+     */
+    public GradientCodec(int length, double density) {
+        if (density <= 0.0 || density > 1.0)
+            throw new IllegalArgumentException("density must be greater than 0 and at most 1.");
+        _density = density;
+        _residual = density < 1.0 ? new double[length] : null;
+        _magnitudes = density < 1.0 ? new double[length] : null;
+        _indices = density < 1.0 ? new int[length] : null;
+    }
+    
+    /**
+     * Writes gradient, compressed if this codec's density is below 1.
+     */
+    public void write(double[] gradient, DataOutput out) throws IOException {
+        if (_residual == null) {
+            writeDense(gradient, out);
+            return;
+        }
+        for (int k=0; k<gradient.length; k++)
+            _residual[k] += gradient[k];
+        int count = selectLargest((int)Math.ceil(_density*gradient.length));
+        
+        ByteBuffer buffer = buffer(count*9);
+        int previous = 0;
+        for (int n=0; n<count; n++) {
+            int k = _indices[n];
+            writeVarint(buffer, k - previous);
+            buffer.putFloat((float)_residual[k]);
+            _residual[k] -= (float)_residual[k];
+            previous = k;
+        }
+        out.writeByte(SPARSE);
+        out.writeInt(gradient.length);
+        out.writeInt(count);
+        out.writeInt(buffer.position());
+        out.write(_bytes, 0, buffer.position());
+    }
+    
+    /**
+     * Writes every value of values as a double.
+     */
+    public void writeDense(double[] values, DataOutput out) throws IOException {
+        ByteBuffer buffer = buffer(8*values.length);
+        buffer.asDoubleBuffer().put(values);
+        out.writeByte(DENSE);
+        out.writeInt(values.length);
+        out.write(_bytes, 0, 8*values.length);
+    }
+    
+    /**
+     * Reads a message and adds its values to sum.
+     */
+    public void readAdd(DataInput in, double[] sum) throws IOException {
+        read(in, sum, true);
+    }
+    
+    /**
+     * Reads a message into values, replacing what was there.
+     */
+    public void read(DataInput in, double[] values) throws IOException {
+        read(in, values, false);
+    }
+    
+    private void read(DataInput in, double[] values, boolean add) throws IOException {
+        byte form = in.readByte();
+        int length = in.readInt();
+        if (length != values.length)
+            throw new IOException("Expected " + values.length + " values but was sent " + length);
+        if (form == DENSE) {
+            ByteBuffer buffer = buffer(8*length);
+            in.readFully(_bytes, 0, 8*length);
+            for (int k=0; k<length; k++)
+                values[k] = add ? values[k] + buffer.getDouble() : buffer.getDouble();
+            return;
+        }
+        if (form != SPARSE)
+            throw new IOException("Unknown message form " + form);
+        int count = in.readInt();
+        int bytes = in.readInt();
+        ByteBuffer buffer = buffer(bytes);
+        in.readFully(_bytes, 0, bytes);
+        if (!add)
+            Arrays.fill(values, 0.0);
+        int k = 0;
+        for (int n=0; n<count; n++) {
+            k += readVarint(buffer);
+            values[k] += buffer.getFloat();
+        }
+    }
+    
+    /**
+     * Puts the indices of the count largest non-zero residuals, by magnitude, 
+     * in _indices in ascending order, and returns how many there were, which 
+     * is fewer than count if there are not that many non-zero residuals.
+     */
+    private int selectLargest(int count) {
+        int nonZero = 0;
+        for (int k=0; k<_residual.length; k++)
+            if (_residual[k] != 0.0)
+                _magnitudes[nonZero++] = Math.abs(_residual[k]);
+        count = Math.min(count, nonZero);
+        if (count == 0)
+            return 0;
+        double threshold = select(_magnitudes, nonZero, nonZero - count);
+        
+        int above = 0;
+        for (int k=0; k<_residual.length; k++)
+            if (Math.abs(_residual[k]) > threshold)
+                above++;
+        int ties = count - above;
+        int n = 0;
+        for (int k=0; k<_residual.length && n < count; k++) {
+            double magnitude = Math.abs(_residual[k]);
+            if (magnitude > threshold || (magnitude == threshold && ties-- > 0))
+                _indices[n++] = k;
+        }
+        return n;
+    }
+    
+    /**
+     * The value that would be at index rank if the first length entries of 
+     * values were sorted. Reorders them as it goes.
+     */
+    private static double select(double[] values, int length, int rank) {
+        int low = 0;
+        int high = length - 1;
+        while (low < high) {
+            double pivot = values[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (values[i] < pivot)
+                    i++;
+                while (values[j] > pivot)
+                    j--;
+                if (i <= j) {
+                    double swap = values[i];
+                    values[i++] = values[j];
+                    values[j--] = swap;
+                }
+            }
+            if (rank <= j)
+                high = j;
+            else if (rank >= i)
+                low = i;
+            else
+                break;
+        }
+        return values[rank];
+    }
+    
+    private ByteBuffer buffer(int bytes) {
+        if (_bytes.length < bytes)
+            _bytes = new byte[bytes];
+        return ByteBuffer.wrap(_bytes, 0, bytes);
+    }
+    
+    private static void writeVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+    
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift=0; ; shift+=7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+}
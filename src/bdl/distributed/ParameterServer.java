@@ -0,0 +1,199 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.distributed;
+
+import bdl.Network;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+
+/**
+ * The server side of synchronous data parallel training across processes. 
+ * 
+ * The server owns the Network whose weights are being trained, and its 
+ * Optimizer. Each Worker holds a shard of the training data and a Network of 
+ * the same shape. Every step, the server sends its parameters to all the 
+ * workers, each worker computes the gradient of its next batch with 
+ * Network.computeGradient() and sends it back, and the server adds the 
+ * gradients up and applies them with Network.applyGradient(). A step over 
+ * workers with batches of b samples each is one batch of workers*b samples, 
+ * apart from the order in which the gradients are added, and with top-k 
+ * compression, the parts of each gradient held back for later steps.
+ * 
+ * Gradients are added in the order the workers connected, so a run is 
+ * repeatable for a given set of workers and data. Everything travels over 
+ * TCP in the forms written by GradientCodec, after a handshake in which each 
+ * worker sends MAGIC and its parameter count, and the server replies with 
+ * the same. A step starts with the byte STEP, and the byte STOP ends the 
+ * session.
+ * 
+ * @author chuckwolber
+ */
+public class ParameterServer implements AutoCloseable
+{
+    static final int MAGIC = 0x42444C50;
+    static final byte STOP = 0;
+    static final byte STEP = 1;
+    static final int BUFFER_BYTES = 1 << 16;
+    static final int ACCEPT_TIMEOUT_MILLIS = 60000;
+    
+    private final Network _network;
+    private final ServerSocket _server;
+    private final Socket[] _sockets;
+    private final DataInputStream[] _in;
+    private final DataOutputStream[] _out;
+    private final GradientCodec _codec;
+    private final double[] _parameters;
+    private final double[] _gradient;
+    private int _connected;
+    private boolean _closed;
+    
+    /**
+     * Listens on port, or on any free port if port is 0, for the given number 
+     * of workers.
+     */
+    public ParameterServer(Network network, int port, int workers) throws IOException {
+        if (workers < 1)
+            throw new IllegalArgumentException("A ParameterServer needs at least one worker.");
+        _network = network;
+        _server = new ServerSocket(port);
+        _server.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+        _sockets = new Socket[workers];
+        _in = new DataInputStream[workers];
+        _out = new DataOutputStream[workers];
+        _codec = new GradientCodec(network.parameterCount(), 1.0);
+        _parameters = new double[network.parameterCount()];
+        _gradient = new double[network.parameterCount()];
+    }
+    
+    /**
+     * The port the server is listening on.
+     */
+    public int port() {
+        return _server.getLocalPort();
+    }
+    
+    /**
+     * Waits until every worker has connected. train() calls this itself. 
+     * Gives up if ACCEPT_TIMEOUT_MILLIS pass without a worker connecting, or 
+     * without a connected worker finishing its handshake, so a worker that 
+     * never starts or never speaks cannot leave the server waiting forever.
+     */
+    public void acceptWorkers() throws IOException {
+        while (_connected < _sockets.length) {
+            Socket socket;
+            try {
+                socket = _server.accept();
+            } catch (SocketTimeoutException e) {
+                throw new IOException("Only " + _connected + " of " + _sockets.length 
+                        + " workers connected", e);
+            }
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), BUFFER_BYTES));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), BUFFER_BYTES));
+            int magic;
+            int parameters;
+            try {
+                magic = in.readInt();
+                parameters = in.readInt();
+            } catch (SocketTimeoutException e) {
+                socket.close();
+                throw new IOException("Worker at " + socket.getRemoteSocketAddress() 
+                        + " connected but sent no handshake", e);
+            }
+            socket.setSoTimeout(0);
+            if (magic != MAGIC || parameters != _parameters.length) {
+                socket.close();
+                throw new IOException("Worker at " + socket.getRemoteSocketAddress() 
+                        + " does not match this server's Network");
+            }
+            out.writeInt(MAGIC);
+            out.writeInt(_parameters.length);
+            out.flush();
+            _sockets[_connected] = socket;
+            _in[_connected] = in;
+            _out[_connected] = out;
+            _connected++;
+        }
+    }
+    
+    /**
+     * Runs the given number of steps. Returns the sum of currentError() that 
+     * the workers reported for the final step.
+     */
+    public double train(int steps) throws IOException {
+        acceptWorkers();
+        double error = 0.0;
+        for (int step=0; step<steps; step++) {
+            _network.getParameters(_parameters);
+            for (DataOutputStream out : _out) {
+                out.writeByte(STEP);
+                _codec.writeDense(_parameters, out);
+                out.flush();
+            }
+            
+            Arrays.fill(_gradient, 0.0);
+            int samples = 0;
+            error = 0.0;
+            for (DataInputStream in : _in) {
+                samples += in.readInt();
+                error += in.readDouble();
+                _codec.readAdd(in, _gradient);
+            }
+            _network.applyGradient(_gradient, samples);
+        }
+        return error;
+    }
+    
+    /**
+     * Tells every worker to stop, and closes the connections. Closing again 
+     * does nothing.
+     */
+    @Override
+    public void close() throws IOException {
+        if (_closed)
+            return;
+        _closed = true;
+        IOException failure = null;
+        for (int w=0; w<_connected; w++) {
+            try {
+                _out[w].writeByte(STOP);
+                _out[w].flush();
+                _sockets[w].close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+        _server.close();
+        if (failure != null)
+            throw failure;
+    }
+}
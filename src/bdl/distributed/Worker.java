@@ -0,0 +1,102 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.distributed;
+
+import bdl.Network;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * One worker in a ParameterServer session, usually in its own process. 
+ * 
+ * A worker trains on its own shard of the data, batchSize samples a step, 
+ * working through the shard in order and starting again from the beginning 
+ * when it runs out. It uses the ordinary Network forward and backward passes
+ * through Network.computeGradient(), on parameters sent by the server, so its
+ * Network must have the same layer sizes and activation functions as the 
+ * server's. Its own Optimizer is never used.
+ * 
+ * @author chuckwolber
+ */
+public class Worker
+{
+    private final Network _network;
+    private final double[][] _inputs;
+    private final double[][] _targets;
+    private final int _batchSize;
+    private final GradientCodec _codec;
+    private final double[] _parameters;
+    private final double[] _gradient;
+    private int _next;
+    
+    /**
+     * density is the fraction of each gradient sent to the server, as 
+     * described at GradientCodec. 1 sends all of it.
+     */
+    public Worker(Network network, double[][] inputs, double[][] targets, int batchSize, double density) {
+        if (inputs.length != targets.length || inputs.length == 0)
+            throw new IllegalArgumentException("A Worker needs the same, non-zero, number of inputs and targets.");
+        _network = network;
+        _inputs = inputs;
+        _targets = targets;
+        _batchSize = Math.max(1, Math.min(batchSize, inputs.length));
+        _codec = new GradientCodec(network.parameterCount(), density);
+        _parameters = new double[network.parameterCount()];
+        _gradient = new double[network.parameterCount()];
+    }
+    
+    /**
+     * Connects to the server and serves steps until it says to stop.
+     */
+    public void run(String host, int port) throws IOException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 
+                    ParameterServer.BUFFER_BYTES));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 
+                    ParameterServer.BUFFER_BYTES));
+            out.writeInt(ParameterServer.MAGIC);
+            out.writeInt(_parameters.length);
+            out.flush();
+            if (in.readInt() != ParameterServer.MAGIC || in.readInt() != _parameters.length)
+                throw new IOException("Server at " + host + ":" + port + " does not match this Worker's Network");
+            
+            while (in.readByte() == ParameterServer.STEP) {
+                _codec.read(in, _parameters);
+                _network.setParameters(_parameters);
+                int from = _next;
+                int to = Math.min(from + _batchSize, _inputs.length);
+                _next = to == _inputs.length ? 0 : to;
+                double error = _network.computeGradient(_inputs, _targets, from, to, _gradient);
+                out.writeInt(to - from);
+                out.writeDouble(error);
+                _codec.write(_gradient, out);
+                out.flush();
+            }
+        }
+    }
+}
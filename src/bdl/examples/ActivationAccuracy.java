@@ -0,0 +1,94 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.examples;
+
+import bdl.activationFunctions.ActivationFunction;
+import bdl.activationFunctions.SigmoidFunction;
+import bdl.activationFunctions.TableSigmoidFunction;
+
+/**
+ * Checks the fast sigmoid approximation against SigmoidFunction over a dense 
+ * grid, for the function and its derivative, and fails if either one is 
+ * further off than its documented MAX_ABSOLUTE_ERROR. Then times both of them 
+ * over a whole layer.
+ * 
+ * @author chuckwolber
+ */
+public class ActivationAccuracy
+{
+    private static final double GRID_LIMIT = 40.0;
+    private static final double GRID_STEP = 1.0 / 4096.0;
+    private static final int LAYER_SIZE = 4096;
+    private static final int TIMING_ROUNDS = 2000;
+    
+    public static void main(String[] args) {
+        ActivationFunction exact = new SigmoidFunction();
+        boolean passed = true;
+        
+        passed &= check(exact, new TableSigmoidFunction(), TableSigmoidFunction.MAX_ABSOLUTE_ERROR);
+        
+        time(exact);
+        time(new TableSigmoidFunction());
+        
+        if (!passed)
+            System.exit(1);
+    }
+    
+    private static boolean check(ActivationFunction exact, ActivationFunction approx, double bound) {
+        double maxError = 0.0;
+        double maxDerivativeError = 0.0;
+        
+        for (double x=-GRID_LIMIT; x<=GRID_LIMIT; x+=GRID_STEP) {
+            double y = approx.evalFunction(x);
+            maxError = Math.max(maxError, Math.abs(y - exact.evalFunction(x)));
+            maxDerivativeError = Math.max(maxDerivativeError, 
+                    Math.abs(approx.evalFunctionDerivative(x, y) - exact.evalFunctionDerivative(x)));
+        }
+        
+        boolean passed = maxError <= bound && maxDerivativeError <= bound;
+        System.out.println(approx.getClass().getSimpleName() + 
+                " Bound: " + bound + 
+                " Error: " + maxError + 
+                " Derivative Error: " + maxDerivativeError + 
+                (passed ? " PASS" : " FAIL"));
+        return passed;
+    }
+    
+    private static void time(ActivationFunction function) {
+        double[] x = new double[LAYER_SIZE];
+        double[] y = new double[LAYER_SIZE];
+        for (int i=0; i<LAYER_SIZE; i++)
+            x[i] = (i - LAYER_SIZE / 2) / 256.0;
+        
+        /* The first half of the rounds is warm up for the JIT. */
+        long start = 0;
+        for (int round=0; round<TIMING_ROUNDS; round++) {
+            if (round == TIMING_ROUNDS / 2)
+                start = System.nanoTime();
+            function.evalFunction(x, y, 0, LAYER_SIZE);
+        }
+        
+        double nanos = (double)(System.nanoTime() - start) / ((TIMING_ROUNDS / 2) * (double)LAYER_SIZE);
+        System.out.println(function.getClass().getSimpleName() + " ns/eval: " + nanos);
+    }
+}
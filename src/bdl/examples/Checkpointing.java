@@ -0,0 +1,134 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.examples;
+
+import bdl.Checkpointer;
+import bdl.ComputeEngine;
+import bdl.Network;
+import bdl.NetworkDescriptor;
+import bdl.Trainer;
+import bdl.activationFunctions.SigmoidFunction;
+import bdl.optimizers.AdamOptimizer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Shows that a run interrupted half way and resumed from its last checkpoint 
+ * ends with exactly the same weights as a run that was never interrupted, 
+ * with the weights pruned before training still held at zero, and times training with and without a checkpoint at every epoch.
+ * 
+ * @author chuckwolber
+ */
+public class Checkpointing
+{
+    private static final int INPUTS = 64;
+    private static final int HIDDEN = 512;
+    private static final int OUTPUTS = 10;
+    private static final int SAMPLES = 256;
+    private static final int EPOCHS = 20;
+    private static final double SPARSITY = 0.5;
+    
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(5);
+        double[][] inputs = new double[SAMPLES][INPUTS];
+        double[][] targets = new double[SAMPLES][OUTPUTS];
+        for (int s=0; s<SAMPLES; s++) {
+            for (int j=0; j<INPUTS; j++)
+                inputs[s][j] = random.nextDouble();
+            targets[s][random.nextInt(OUTPUTS)] = 1.0;
+        }
+        Network first = network();
+        double[] start = new double[first.parameterCount()];
+        first.getParameters(start);
+        Path path = Files.createTempFile("bdl", ".checkpoint");
+        
+        Network uninterrupted = network();
+        uninterrupted.setParameters(start);
+        uninterrupted.prune(SPARSITY);
+        new Trainer(uninterrupted).train(inputs, targets, EPOCHS);
+        
+        Network interrupted = network();
+        interrupted.setParameters(start);
+        interrupted.prune(SPARSITY);
+        try (Checkpointer checkpoints = new Checkpointer(interrupted, path)) {
+            Trainer trainer = new Trainer(interrupted);
+            trainer.addListener(checkpoints);
+            trainer.train(inputs, targets, EPOCHS/2);
+        }
+        
+        Network resumed = network();
+        try (Checkpointer checkpoints = new Checkpointer(resumed, path)) {
+            int completed = checkpoints.restore();
+            Trainer trainer = new Trainer(resumed);
+            trainer.addListener(checkpoints);
+            trainer.train(inputs, targets, EPOCHS - completed);
+            System.out.println("Resumed after " + completed + " of " + EPOCHS + " epochs");
+        }
+        
+        double[] expected = new double[start.length];
+        double[] actual = new double[start.length];
+        uninterrupted.getParameters(expected);
+        resumed.getParameters(actual);
+        System.out.println("Same weights as the uninterrupted run: " + Arrays.equals(expected, actual));
+        System.out.println("Sparsity after resuming: " + resumed.sparsity());
+        
+        time(inputs, targets, null);
+        time(inputs, targets, path);
+        Files.deleteIfExists(path);
+    }
+    
+    private static Network network() {
+        NetworkDescriptor nd = new NetworkDescriptor();
+        nd.setComputeEngine(ComputeEngine.FLAT);
+        nd.setLayerSizes(INPUTS, HIDDEN, HIDDEN, OUTPUTS);
+        nd.setActivationFunction(new SigmoidFunction());
+        nd.setOptimizer(AdamOptimizer::new);
+        nd.setLearningRate(1e-3);
+        return new Network(nd);
+    }
+    
+    /**
+     * Samples per second over EPOCHS epochs, checkpointing to path at every 
+     * epoch unless path is null.
+     */
+    private static void time(double[][] inputs, double[][] targets, Path path) throws IOException {
+        Network network = network();
+        Trainer trainer = new Trainer(network);
+        Checkpointer checkpoints = null;
+        if (path != null) {
+            checkpoints = new Checkpointer(network, path);
+            trainer.addListener(checkpoints);
+        }
+        long start = System.nanoTime();
+        trainer.train(inputs, targets, EPOCHS);
+        long elapsed = System.nanoTime() - start;
+        if (checkpoints != null)
+            checkpoints.close();
+        System.out.println((path == null ? "Without" : "With") + " checkpoints, samples/s: " 
+                + Math.round(EPOCHS*inputs.length*1e9/elapsed) 
+                + (checkpoints == null ? "" : " Checkpoints written: " + checkpoints.checkpointsWritten()));
+    }
+}
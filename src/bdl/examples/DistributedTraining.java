@@ -0,0 +1,206 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.examples;
+
+import bdl.ComputeEngine;
+import bdl.Network;
+import bdl.NetworkDescriptor;
+import bdl.activationFunctions.SigmoidFunction;
+import bdl.distributed.ParameterServer;
+import bdl.distributed.Worker;
+import bdl.optimizers.MomentumOptimizer;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Trains one network across several processes on this machine: a 
+ * ParameterServer in this process, and WORKERS Worker processes started from 
+ * the same class path, each with its own shard of the data. Runs once 
+ * sending whole gradients and once sending only the largest 10% of each, and 
+ * compares both with the same training in a single process.
+ * 
+ * Run with no arguments. The worker processes are started with the 
+ * arguments "worker", the server's port, the worker's index and the 
+ * gradient density.
+ * 
+ * The whole gradient run adds the same gradients up as the single process 
+ * run, but in a different order, so the two differ in the last few bits 
+ * from the first step, and training makes those differences grow. From the
+ * fixed starting weights used here the errors still agree to about seven 
+ * digits after STEPS steps. The example exits with status 1 if the errors
+ * at any report differ by a larger fraction than AGREEMENT.
+ * 
+ * The top 10% run converges far more slowly. Each step applies only a tenth
+ * of each gradient, and the rest waits in the workers' residuals. Over 
+ * STEPS steps it goes from an error of about 23 to about 18, while the whole
+ * gradient run reaches about 2.6. So the example only checks that it is 
+ * learning: its final error must be at most COMPRESSED_PROGRESS of its error
+ * at the first report.
+ * 
+ * @author chuckwolber
+ */
+public class DistributedTraining
+{
+    private static final int WORKERS = 3;
+    private static final int INPUTS = 32;
+    private static final int OUTPUTS = 4;
+    private static final int SAMPLES = 1200;
+    private static final int BATCH_SIZE = 20;
+    private static final int STEPS = 800;
+    private static final int REPORT_STEPS = 200;
+    private static final double AGREEMENT = 1e-6;
+    private static final double COMPRESSED_PROGRESS = 0.9;
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("worker")) {
+            worker(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Double.parseDouble(args[3]));
+            return;
+        }
+        
+        Random random = new Random(7);
+        double[] parameters = new double[network().parameterCount()];
+        for (int k=0; k<parameters.length; k++)
+            parameters[k] = 0.2*random.nextDouble() - 0.1;
+        
+        System.out.println("Single process");
+        double[] expected = singleProcess(parameters);
+        System.out.println(WORKERS + " workers, whole gradients");
+        double[] actual = distributed(parameters, 1.0);
+        System.out.println(WORKERS + " workers, top 10% of each gradient");
+        double[] compressed = distributed(parameters, 0.1);
+        
+        double difference = 0.0;
+        for (int r=0; r<expected.length; r++)
+            difference = Math.max(difference, Math.abs(actual[r] - expected[r]) / expected[r]);
+        System.out.println("Largest relative difference in error, whole gradients: " + difference);
+        if (!(difference <= AGREEMENT)) {
+            System.out.println("Whole gradient training does not match single process training");
+            System.exit(1);
+        }
+        double progress = compressed[compressed.length-1] / compressed[0];
+        System.out.println("Final over first error, top 10%: " + progress);
+        if (!(progress <= COMPRESSED_PROGRESS)) {
+            System.out.println("Top 10% training is not learning");
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Every process builds the same network shape and data set, so the 
+     * workers only need to be told which shard is theirs.
+     */
+    private static Network network() {
+        NetworkDescriptor nd = new NetworkDescriptor();
+        nd.setComputeEngine(ComputeEngine.FLAT);
+        nd.setLayerSizes(INPUTS, 64, 64, OUTPUTS);
+        nd.setActivationFunction(new SigmoidFunction());
+        nd.setOptimizer(MomentumOptimizer::new);
+        nd.setLearningRate(2.0);
+        return new Network(nd);
+    }
+    
+    private static double[][][] data() {
+        Random random = new Random(21);
+        double[][] inputs = new double[SAMPLES][INPUTS];
+        double[][] targets = new double[SAMPLES][OUTPUTS];
+        for (int s=0; s<SAMPLES; s++) {
+            for (int j=0; j<INPUTS; j++)
+                inputs[s][j] = random.nextDouble();
+            int label = (inputs[s][0] + inputs[s][1] > 1.0 ? 2 : 0) + (inputs[s][2] > inputs[s][3] ? 1 : 0);
+            targets[s][label] = 1.0;
+        }
+        return new double[][][] {inputs, targets};
+    }
+    
+    /**
+     * Trains on batches of WORKERS*BATCH_SIZE samples, made up the same way as
+     * the workers' batches, for comparison. Returns the error at each report.
+     */
+    private static double[] singleProcess(double[] parameters) {
+        Network network = network();
+        network.setParameters(parameters);
+        double[][][] data = data();
+        int shard = SAMPLES / WORKERS;
+        double[][] inputs = new double[WORKERS*BATCH_SIZE][];
+        double[][] targets = new double[WORKERS*BATCH_SIZE][];
+        double[] errors = new double[STEPS / REPORT_STEPS];
+        for (int step=0; step<STEPS; step++) {
+            int offset = (step*BATCH_SIZE) % shard;
+            for (int w=0; w<WORKERS; w++) {
+                for (int s=0; s<BATCH_SIZE; s++) {
+                    inputs[w*BATCH_SIZE + s] = data[0][w*shard + offset + s];
+                    targets[w*BATCH_SIZE + s] = data[1][w*shard + offset + s];
+                }
+            }
+            double error = network.trainBatch(inputs, targets);
+            if ((step+1) % REPORT_STEPS == 0) {
+                errors[step / REPORT_STEPS] = error;
+                System.out.println("\tStep: " + (step+1) + " Error: " + error);
+            }
+        }
+        return errors;
+    }
+    
+    /**
+     * Returns the error at each report.
+     */
+    private static double[] distributed(double[] parameters, double density) throws IOException, InterruptedException {
+        Network network = network();
+        network.setParameters(parameters);
+        double[] errors = new double[STEPS / REPORT_STEPS];
+        ArrayList<Process> workers = new ArrayList<>();
+        try (ParameterServer server = new ParameterServer(network, 0, WORKERS)) {
+            for (int w=0; w<WORKERS; w++)
+                workers.add(startWorker(server.port(), w, density));
+            long start = System.nanoTime();
+            for (int r=0; r<errors.length; r++) {
+                errors[r] = server.train(REPORT_STEPS);
+                System.out.println("\tStep: " + (r+1)*REPORT_STEPS + " Error: " + errors[r]);
+            }
+            System.out.println("\tSteps/s: " + Math.round(STEPS*1e9/(System.nanoTime() - start)));
+        }
+        for (Process worker : workers)
+            worker.waitFor();
+        return errors;
+    }
+    
+    private static Process startWorker(int port, int index, double density) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        return new ProcessBuilder(Arrays.asList(java, "-cp", System.getProperty("java.class.path"), 
+                DistributedTraining.class.getName(), "worker", 
+                Integer.toString(port), Integer.toString(index), Double.toString(density)))
+                .inheritIO()
+                .start();
+    }
+    
+    private static void worker(int port, int index, double density) throws IOException {
+        double[][][] data = data();
+        int shard = SAMPLES / WORKERS;
+        double[][] inputs = Arrays.copyOfRange(data[0], index*shard, (index+1)*shard);
+        double[][] targets = Arrays.copyOfRange(data[1], index*shard, (index+1)*shard);
+        new Worker(network(), inputs, targets, BATCH_SIZE, density).run("localhost", port);
+    }
+}
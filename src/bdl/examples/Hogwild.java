@@ -0,0 +1,137 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.examples;
+
+import bdl.ComputeEngine;
+import bdl.HogwildTrainer;
+import bdl.Network;
+import bdl.NetworkDescriptor;
+import bdl.activationFunctions.SigmoidFunction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Trains the XOR network with a HogwildTrainer, two threads updating the 
+ * same weights without locks, and checks that it converges to TARGET_ERROR. 
+ * Then times epochs over a wide network with sparse inputs for pools of 1 up 
+ * to the number of processors.
+ * 
+ * @author chuckwolber
+ */
+public class Hogwild
+{
+    private static final double TARGET_ERROR = 1e-4;
+    private static final int MAX_EPOCHS = 400000;
+    private static final int CHECK_INTERVAL = 1000;
+    private static final int WIDE_INPUTS = 4096;
+    private static final int WIDE_SAMPLES = 512;
+    private static final double WIDE_DENSITY = 0.01;
+    
+    public static void main(String[] args) {
+        boolean passed = xor();
+        
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads=1; threads<=processors; threads*=2)
+            time(threads);
+        
+        if (!passed)
+            System.exit(1);
+    }
+    
+    private static boolean xor() {
+        NetworkDescriptor nd = descriptor();
+        nd.setLayers(4);
+        nd.setNodesPerLayer(2);
+        nd.setOutputNodes(1);
+        nd.setLearningRate(0.5);
+        nd.setInitialWeights(randomValues(10, 5));
+        nd.setBiases(randomValues(5, 105));
+        Network nw = new Network(nd);
+        
+        double[][] inputs = {{0, 0}, {0, 1}, {1, 0}, {1, 1}};
+        double[][] expected = {{0}, {1}, {1}, {0}};
+        HogwildTrainer trainer = new HogwildTrainer(nw, new ForkJoinPool(2));
+        double error = Double.POSITIVE_INFINITY;
+        int epochs = 0;
+        while (error > TARGET_ERROR && epochs < MAX_EPOCHS) {
+            error = trainer.fit(inputs, expected, CHECK_INTERVAL);
+            epochs += CHECK_INTERVAL;
+        }
+        
+        for (double[] input : inputs) {
+            nw.setInput(input);
+            nw.forwardPropagate();
+            System.out.println("\t" + Arrays.toString(input) + " " + nw.output());
+        }
+        boolean passed = error <= TARGET_ERROR;
+        System.out.println("XOR Error: " + error + " Epochs: " + epochs + (passed ? " PASS" : " FAIL"));
+        return passed;
+    }
+    
+    /**
+     * Samples per second for a WIDE_INPUTS-256-10 network whose inputs are 
+     * WIDE_DENSITY non-zero, best of several epochs.
+     */
+    private static void time(int threads) {
+        NetworkDescriptor nd = descriptor();
+        nd.setLayerSizes(WIDE_INPUTS, 256, 10);
+        nd.setLearningRate(0.1);
+        Network nw = new Network(nd);
+        
+        Random random = new Random(9);
+        double[][] inputs = new double[WIDE_SAMPLES][WIDE_INPUTS];
+        double[][] expected = new double[WIDE_SAMPLES][10];
+        for (int s=0; s<WIDE_SAMPLES; s++) {
+            for (int j=0; j<WIDE_INPUTS; j++)
+                if (random.nextDouble() < WIDE_DENSITY)
+                    inputs[s][j] = random.nextDouble();
+            expected[s][random.nextInt(10)] = 1.0;
+        }
+        
+        HogwildTrainer trainer = new HogwildTrainer(nw, new ForkJoinPool(threads));
+        long best = Long.MAX_VALUE;
+        for (int run=0; run<8; run++) {
+            long start = System.nanoTime();
+            trainer.fit(inputs, expected, 1);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(threads + " threads, samples/s: " + Math.round(WIDE_SAMPLES*1e9/best));
+    }
+    
+    private static NetworkDescriptor descriptor() {
+        NetworkDescriptor nd = new NetworkDescriptor();
+        nd.setComputeEngine(ComputeEngine.FLAT);
+        nd.setActivationFunction(new SigmoidFunction());
+        return nd;
+    }
+    
+    private static ArrayList<Double> randomValues(int count, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Double> values = new ArrayList<>();
+        for (int i=0; i<count; i++)
+            values.add(random.nextDouble() - 0.5);
+        return values;
+    }
+}
@@ -22,6 +22,7 @@
 
 package bdl.examples;
 
+import bdl.ComputeEngine;
 import bdl.Network;
 import bdl.NetworkDescriptor;
 import bdl.activationFunctions.SigmoidFunction;
@@ -36,6 +37,7 @@ public class Mazur
 {
     public static void main(String[] args) {
         mazur();
+        mazur(ComputeEngine.FLAT);
     }
     
     /**
@@ -55,9 +57,16 @@ public class Mazur
      *            0.35891647971788465, 0.5113012702387375, 0.4086661860762334, 0.5613701211079891]
      *  Output:  [0.7420881111907824, 0.7752849682944595]
      *  Error:   [0.29102777369359933]
+     * 
+     * Every ComputeEngine must reproduce these values exactly.
      */
     public static void mazur() {
+        mazur(ComputeEngine.OBJECT_GRAPH);
+    }
+    
+    public static void mazur(ComputeEngine engine) {
         NetworkDescriptor nd = new NetworkDescriptor();
+        nd.setComputeEngine(engine);
         nd.setLayers(3);
         nd.setNodesPerLayer(2);
         nd.setOutputNodes(2);
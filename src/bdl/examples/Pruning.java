@@ -0,0 +1,111 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.examples;
+
+import bdl.ComputeEngine;
+import bdl.InferenceModel;
+import bdl.Network;
+import bdl.NetworkDescriptor;
+import bdl.activationFunctions.SigmoidFunction;
+import bdl.optimizers.AdamOptimizer;
+import java.util.Random;
+
+/**
+ * Trains a network to copy a smaller random "teacher" network, then prunes it 
+ * in steps to 90% sparsity, fine tuning after each step, and reports the loss 
+ * on held out samples along with how long the frozen model takes to predict.
+ * 
+ * @author chuckwolber
+ */
+public class Pruning
+{
+    private static final int INPUTS = 128;
+    private static final int HIDDEN = 512;
+    private static final int OUTPUTS = 4;
+    private static final int SAMPLES = 2048;
+    private static final double[] SPARSITY = {0.5, 0.7, 0.8, 0.9};
+    
+    public static void main(String[] args) {
+        Random random = new Random(7);
+        Network teacher = network(INPUTS, 16, OUTPUTS);
+        double[][] inputs = randomInputs(SAMPLES, random);
+        double[][] targets = outputs(teacher, inputs);
+        double[][] testInputs = randomInputs(SAMPLES/4, random);
+        double[][] testTargets = outputs(teacher, testInputs);
+        
+        Network student = network(INPUTS, HIDDEN, HIDDEN, OUTPUTS);
+        student.fit(inputs, targets, 32, 30);
+        report(student, testInputs, testTargets);
+        
+        for (double sparsity : SPARSITY) {
+            student.prune(sparsity);
+            report(student, testInputs, testTargets);
+            student.fit(inputs, targets, 32, 5);
+            report(student, testInputs, testTargets);
+        }
+    }
+    
+    private static Network network(int... sizes) {
+        NetworkDescriptor nd = new NetworkDescriptor();
+        nd.setComputeEngine(ComputeEngine.FLAT);
+        nd.setLayerSizes(sizes);
+        nd.setActivationFunction(new SigmoidFunction());
+        nd.setOptimizer(AdamOptimizer::new);
+        nd.setLearningRate(1e-3);
+        return new Network(nd);
+    }
+    
+    private static double[][] randomInputs(int count, Random random) {
+        double[][] inputs = new double[count][INPUTS];
+        for (double[] input : inputs)
+            for (int j=0; j<INPUTS; j++)
+                input[j] = random.nextDouble();
+        return inputs;
+    }
+    
+    private static double[][] outputs(Network network, double[][] inputs) {
+        return network.freeze().predictBatch(inputs);
+    }
+    
+    /**
+     * Prints the sparsity, the loss over the test samples and the best of 
+     * several timings of predictBatch() over them.
+     */
+    private static void report(Network network, double[][] inputs, double[][] targets) {
+        InferenceModel model = network.freeze();
+        double[][] outputs = model.predictBatch(inputs);
+        double loss = 0.0;
+        for (int s=0; s<inputs.length; s++)
+            for (int i=0; i<OUTPUTS; i++)
+                loss += 0.5*(outputs[s][i] - targets[s][i])*(outputs[s][i] - targets[s][i]);
+        
+        long best = Long.MAX_VALUE;
+        for (int run=0; run<10; run++) {
+            long start = System.nanoTime();
+            model.predictBatch(inputs);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("Sparsity: %.2f Test error: %.6f Predict ms: %.2f%n", 
+                network.sparsity(), loss, best / 1e6);
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.examples;
+
+import bdl.ComputeEngine;
+import bdl.InferenceModel;
+import bdl.Network;
+import bdl.NetworkDescriptor;
+import bdl.activationFunctions.ReLUFunction;
+import bdl.activationFunctions.SigmoidFunction;
+import bdl.optimizers.AdamOptimizer;
+import java.util.Random;
+
+/**
+ * Trains a classifier on the labels of a random "teacher" network, quantizes 
+ * it to 8 bits using part of the training set for calibration, and reports 
+ * how closely the quantized model agrees with the full precision one on held 
+ * out samples, how large each is and how long each takes to predict.
+ * 
+ * @author chuckwolber
+ */
+public class Quantization
+{
+    private static final int INPUTS = 64;
+    private static final int HIDDEN = 256;
+    private static final int CLASSES = 10;
+    private static final int SAMPLES = 4096;
+    private static final int CALIBRATION_SAMPLES = 256;
+    
+    public static void main(String[] args) {
+        Random random = new Random(11);
+        InferenceModel teacher = network(INPUTS, 32, CLASSES).freeze();
+        double[][] inputs = randomInputs(SAMPLES, random);
+        double[][] targets = labels(teacher, inputs);
+        double[][] testInputs = randomInputs(SAMPLES/4, random);
+        double[][] testTargets = labels(teacher, testInputs);
+        
+        Network network = network(INPUTS, HIDDEN, HIDDEN, CLASSES);
+        network.fit(inputs, targets, 32, 20);
+        
+        double[][] calibration = new double[CALIBRATION_SAMPLES][];
+        System.arraycopy(inputs, 0, calibration, 0, CALIBRATION_SAMPLES);
+        InferenceModel full = network.freeze();
+        InferenceModel quantized = network.quantize(calibration);
+        
+        double[][] expected = full.predictBatch(testInputs);
+        double[][] actual = quantized.predictBatch(testInputs);
+        double largest = 0.0;
+        double total = 0.0;
+        for (int s=0; s<testInputs.length; s++)
+            for (int i=0; i<CLASSES; i++) {
+                double difference = Math.abs(actual[s][i] - expected[s][i]);
+                largest = Math.max(largest, difference);
+                total += difference;
+            }
+        
+        System.out.println("Largest output difference: " + largest);
+        System.out.println("Mean output difference: " + total / (testInputs.length*CLASSES));
+        System.out.println("Same class chosen: " + 100.0*quantized.agreement(full, testInputs) + "%");
+        System.out.println("Accuracy, double: " + 100.0*full.accuracy(testInputs, testTargets) 
+                + "% int8: " + 100.0*quantized.accuracy(testInputs, testTargets) + "%");
+        System.out.println("Bytes, double: " + full.parameterBytes() 
+                + " int8: " + quantized.parameterBytes());
+        System.out.println("Predict us/row, double: " + time(full, testInputs) 
+                + " int8: " + time(quantized, testInputs));
+    }
+    
+    private static Network network(int... sizes) {
+        NetworkDescriptor nd = new NetworkDescriptor();
+        nd.setComputeEngine(ComputeEngine.FLAT);
+        nd.setLayerSizes(sizes);
+        nd.setActivationFunction(new ReLUFunction());
+        nd.setActivationFunction(sizes.length-1, new SigmoidFunction());
+        nd.setOptimizer(AdamOptimizer::new);
+        nd.setLearningRate(1e-3);
+        return new Network(nd);
+    }
+    
+    private static double[][] randomInputs(int count, Random random) {
+        double[][] inputs = new double[count][INPUTS];
+        for (double[] input : inputs)
+            for (int j=0; j<INPUTS; j++)
+                input[j] = random.nextGaussian();
+        return inputs;
+    }
+    
+    /**
+     * One-hot targets for the class the teacher scores highest.
+     */
+    private static double[][] labels(InferenceModel teacher, double[][] inputs) {
+        double[][] scores = teacher.predictBatch(inputs);
+        double[][] labels = new double[inputs.length][CLASSES];
+        for (int s=0; s<inputs.length; s++)
+            labels[s][argmax(scores[s])] = 1.0;
+        return labels;
+    }
+    
+    private static int argmax(double[] values) {
+        int best = 0;
+        for (int i=1; i<values.length; i++)
+            if (values[i] > values[best])
+                best = i;
+        return best;
+    }
+    
+    /**
+     * Microseconds per row for predict(), one row at a time, best of several 
+     * runs.
+     */
+    private static double time(InferenceModel model, double[][] inputs) {
+        double[] out = new double[model.outputs()];
+        long best = Long.MAX_VALUE;
+        for (int run=0; run<10; run++) {
+            long start = System.nanoTime();
+            for (double[] input : inputs)
+                model.predict(input, out);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e3 / inputs.length;
+    }
+}
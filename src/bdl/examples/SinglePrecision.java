@@ -0,0 +1,149 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.examples;
+
+import bdl.ComputeEngine;
+import bdl.Network;
+import bdl.NetworkDescriptor;
+import bdl.Precision;
+import bdl.activationFunctions.SigmoidFunction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Trains the Mazur and XOR networks from the other examples once with double 
+ * precision weights and once with Precision.FLOAT, from the same starting 
+ * point, and checks that the final losses agree to within TOLERANCE. Then 
+ * times a training step on a network wide enough for memory bandwidth to 
+ * matter.
+ * 
+ * @author chuckwolber
+ */
+public class SinglePrecision
+{
+    private static final double TOLERANCE = 1e-3;
+    private static final int WIDE_LAYER = 2048;
+    
+    public static void main(String[] args) {
+        boolean passed = true;
+        passed &= compare("Mazur", SinglePrecision::mazur);
+        passed &= compare("XOR", SinglePrecision::xor);
+        
+        time(Precision.DOUBLE);
+        time(Precision.FLOAT);
+        
+        if (!passed)
+            System.exit(1);
+    }
+    
+    private interface Run
+    {
+        double loss(Precision precision);
+    }
+    
+    /**
+     * Losses agree if they differ by no more than TOLERANCE relative to the 
+     * double precision loss.
+     */
+    private static boolean compare(String name, Run run) {
+        double expected = run.loss(Precision.DOUBLE);
+        double actual = run.loss(Precision.FLOAT);
+        double difference = Math.abs(actual - expected) / expected;
+        boolean passed = difference <= TOLERANCE;
+        System.out.println(name + " Double: " + expected + " Float: " + actual 
+                + " Relative difference: " + difference + (passed ? " PASS" : " FAIL"));
+        return passed;
+    }
+    
+    private static double mazur(Precision precision) {
+        NetworkDescriptor nd = descriptor(precision);
+        nd.setLayers(3);
+        nd.setNodesPerLayer(2);
+        nd.setOutputNodes(2);
+        nd.setLearningRate(0.5);
+        nd.setBiases(new ArrayList<>(Arrays.asList(0.35, 0.35, 0.60, 0.60)));
+        nd.setInitialWeights(new ArrayList<>(Arrays.asList(0.15, 0.25, 0.20, 0.30, 0.40, 0.50, 0.45, 0.55)));
+        
+        double[][] inputs = {{0.05, 0.10}};
+        double[][] expected = {{0.01, 0.99}};
+        return new Network(nd).fit(inputs, expected, 1, 10000);
+    }
+    
+    private static double xor(Precision precision) {
+        NetworkDescriptor nd = descriptor(precision);
+        nd.setLayers(4);
+        nd.setNodesPerLayer(2);
+        nd.setOutputNodes(1);
+        nd.setLearningRate(0.5);
+        nd.setInitialWeights(randomValues(10, 5));
+        nd.setBiases(randomValues(5, 105));
+        
+        double[][] inputs = {{0, 0}, {0, 1}, {1, 0}, {1, 1}};
+        double[][] expected = {{0}, {1}, {1}, {0}};
+        return new Network(nd).fit(inputs, expected, 1, 20000);
+    }
+    
+    /**
+     * Milliseconds per sample for one batch of 16 through a 
+     * WIDE_LAYER-WIDE_LAYER-WIDE_LAYER-10 network, best of several runs.
+     */
+    private static void time(Precision precision) {
+        NetworkDescriptor nd = descriptor(precision);
+        nd.setLayerSizes(WIDE_LAYER, WIDE_LAYER, WIDE_LAYER, 10);
+        nd.setLearningRate(1e-4);
+        nd.setVectorizedKernels(true);
+        Network nw = new Network(nd);
+        
+        Random random = new Random(3);
+        double[][] inputs = new double[16][WIDE_LAYER];
+        double[][] expected = new double[16][10];
+        for (double[] input : inputs)
+            for (int i=0; i<input.length; i++)
+                input[i] = random.nextDouble();
+        
+        long best = Long.MAX_VALUE;
+        for (int run=0; run<8; run++) {
+            long start = System.nanoTime();
+            nw.trainBatch(inputs, expected);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(precision + " ms/sample: " + best / 1e6 / inputs.length);
+    }
+    
+    private static NetworkDescriptor descriptor(Precision precision) {
+        NetworkDescriptor nd = new NetworkDescriptor();
+        nd.setComputeEngine(ComputeEngine.FLAT);
+        nd.setPrecision(precision);
+        nd.setActivationFunction(new SigmoidFunction());
+        return nd;
+    }
+    
+    private static ArrayList<Double> randomValues(int count, long seed) {
+        Random random = new Random(seed);
+        ArrayList<Double> values = new ArrayList<>();
+        for (int i=0; i<count; i++)
+            values.add(random.nextDouble() - 0.5);
+        return values;
+    }
+}
@@ -24,6 +24,7 @@ package bdl.examples;
 
 import bdl.Network;
 import bdl.NetworkDescriptor;
+import bdl.Trainer;
 import bdl.activationFunctions.SigmoidFunction;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -51,34 +52,26 @@ public class XOR
         double[] input3 = {1, 0};
         double[] input4 = {1, 1};
         double[] inputs[] = {input1, input2, input3, input4};
-        double[] expected = {0, 1, 1, 0};
+        double[] expected[] = {{0}, {1}, {1}, {0}};
         
         Network nw = new Network(nd);
-        double[] inpt;
-        double expt;
-        double error = 0;
-        int i = 0;
         int epochMax = 400000;
         ArrayList<Double> initialWeights = nw.weights();
-        while (i <= epochMax) {
-            //System.out.println("Epoch: " + i);
-            for (int x=0; x<inputs.length; x++) {
-                inpt = inputs[x];
-                expt = expected[x];
-                
-                nw.setInput(inpt);
-                nw.forwardPropagate();
-                if (i == epochMax)
-                    System.out.println("\t" + Arrays.toString(inpt) + " " + nw.output());
-                error += nw.currentError(new double[] {expt});
-                nw.calculateErrorRate(new double[] {expt});
-                nw.backwardPropagate();
-                nw.updateWeights();
-            }
-            System.out.println("Epoch: " + i + " Error: " + error);
-            i++;
-            error = 0;
+        
+        Trainer trainer = new Trainer(nw);
+        trainer.setReportInterval(10000);
+        trainer.setTargetError(1e-4);
+        trainer.addListener((metrics) -> {
+            System.out.println(metrics);
+        });
+        trainer.train(inputs, expected, epochMax);
+        
+        for (double[] inpt : inputs) {
+            nw.setInput(inpt);
+            nw.forwardPropagate();
+            System.out.println("\t" + Arrays.toString(inpt) + " " + nw.output());
         }
+        System.out.println("Epochs: " + trainer.epochsTrained());
         System.out.println("Initial Weights: " + initialWeights);
         System.out.println("Weights: " + nw.weights());
     }
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.optimizers;
+
+/**
+ * Adam (Kingma and Ba, 2014). Keeps running averages of each weight's ∂E/∂w 
+ * and of its square, and steps by the ratio of the two. Both averages start 
+ * at zero, so the learning rate is corrected for that bias once per step in 
+ * prepareStep() rather than once per weight.
+ * 
+ * @author chuckwolber
+ */
+public class AdamOptimizer extends Optimizer
+{
+    private final double _beta1;
+    private final double _beta2;
+    private final double _epsilon;
+    private double _rate;
+    private double[] _mean;
+    private double[] _variance;
+    
+    public AdamOptimizer() {
+        this(0.9, 0.999, 1e-8);
+    }
+    
+    public AdamOptimizer(double beta1, double beta2, double epsilon) {
+        _beta1 = beta1;
+        _beta2 = beta2;
+        _epsilon = epsilon;
+    }
+    
+    @Override
+    protected void allocate(int parameters) {
+        _mean = new double[parameters];
+        _variance = new double[parameters];
+    }
+    
+    @Override
+    protected double[][] stateArrays() {
+        return new double[][] {_mean, _variance};
+    }
+    
+    @Override
+    protected void prepareStep(long step, double learningRate) {
+        _rate = learningRate * Math.sqrt(1.0 - Math.pow(_beta2, step)) 
+                / (1.0 - Math.pow(_beta1, step));
+    }
+    
+    @Override
+    public double delta(int index, double gradient) {
+        double m = _beta1 * _mean[index] + (1.0 - _beta1) * gradient;
+        double v = _beta2 * _variance[index] + (1.0 - _beta2) * gradient * gradient;
+        _mean[index] = m;
+        _variance[index] = v;
+        return _rate * m / (Math.sqrt(v) + _epsilon);
+    }
+}
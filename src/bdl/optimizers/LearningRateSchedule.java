@@ -0,0 +1,67 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.optimizers;
+
+/**
+ * Scales the learning rate set in the NetworkDescriptor as training goes on. 
+ * step is the number of weight updates made so far, so the first update uses 
+ * learningRate(baseRate, 0).
+ * 
+ * @author chuckwolber
+ */
+@FunctionalInterface
+public interface LearningRateSchedule
+{
+    double learningRate(double baseRate, long step);
+    
+    /**
+     * Always the base rate.
+     */
+    static LearningRateSchedule constant() {
+        return (baseRate, step) -> baseRate;
+    }
+    
+    /**
+     * Multiplies the rate by factor after every interval steps. interval must
+     * be at least 1.
+     */
+    static LearningRateSchedule stepDecay(double factor, long interval) {
+        if (interval < 1)
+            throw new IllegalArgumentException("interval must be at least 1.");
+        return (baseRate, step) -> baseRate * Math.pow(factor, step / interval);
+    }
+    
+    /**
+     * baseRate * decay^step.
+     */
+    static LearningRateSchedule exponentialDecay(double decay) {
+        return (baseRate, step) -> baseRate * Math.pow(decay, step);
+    }
+    
+    /**
+     * baseRate / (1 + decay * step).
+     */
+    static LearningRateSchedule inverseTimeDecay(double decay) {
+        return (baseRate, step) -> baseRate / (1.0 + decay * step);
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.optimizers;
+
+/**
+ * Gradient descent with momentum. Each weight keeps a velocity, 
+ * v = momentum * v + learning rate * ∂E/∂w, and moves by v, so steps in a 
+ * consistent direction build up speed and steps that keep changing direction 
+ * cancel out.
+ * 
+ * @author chuckwolber
+ */
+public class MomentumOptimizer extends Optimizer
+{
+    private final double _momentum;
+    private double _rate;
+    private double[] _velocity;
+    
+    public MomentumOptimizer() {
+        this(0.9);
+    }
+    
+    public MomentumOptimizer(double momentum) {
+        _momentum = momentum;
+    }
+    
+    @Override
+    protected void allocate(int parameters) {
+        _velocity = new double[parameters];
+    }
+    
+    @Override
+    protected double[][] stateArrays() {
+        return new double[][] {_velocity};
+    }
+    
+    @Override
+    protected void prepareStep(long step, double learningRate) {
+        _rate = learningRate;
+    }
+    
+    @Override
+    public double delta(int index, double gradient) {
+        double v = _momentum * _velocity[index] + _rate * gradient;
+        _velocity[index] = v;
+        return v;
+    }
+}
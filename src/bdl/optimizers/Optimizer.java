@@ -0,0 +1,141 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.optimizers;
+
+/**
+ * Decides how far each weight moves, given its ∂E/∂w. 
+ * 
+ * A Network numbers its weights in the same order as Network.weights(), and 
+ * an Optimizer keeps whatever it needs to remember about each weight in 
+ * primitive arrays indexed by that number. That state belongs to one Network, 
+ * so every Network needs its own Optimizer.
+ * 
+ * A Network calls beginStep() once before each round of weight updates, then 
+ * delta() once for every weight. delta() may be called from several threads 
+ * at once, but never twice for the same index in one step.
+ * 
+ * @author chuckwolber
+ */
+public abstract class Optimizer
+{
+    private int _parameters = -1;
+    private double _baseLearningRate;
+    private LearningRateSchedule _schedule;
+    private double _learningRate;
+    private long _steps;
+    
+    /**
+     * Called once by the Network that this Optimizer will serve.
+     */
+    public final void initialize(int parameters, double learningRate, LearningRateSchedule schedule) {
+        if (_parameters >= 0)
+            throw new IllegalStateException("An Optimizer can only serve one Network.");
+        _parameters = parameters;
+        _baseLearningRate = learningRate;
+        _schedule = schedule;
+        allocate(parameters);
+    }
+    
+    public final void beginStep() {
+        _learningRate = _schedule.learningRate(_baseLearningRate, _steps);
+        _steps++;
+        prepareStep(_steps, _learningRate);
+    }
+    
+    /**
+     * The amount to subtract from weight index, given its ∂E/∂w.
+     */
+    public abstract double delta(int index, double gradient);
+    
+    /**
+     * Creates the per-weight state arrays.
+     */
+    protected abstract void allocate(int parameters);
+    
+    /**
+     * Lets an Optimizer work out anything that is the same for every weight 
+     * in this step. step counts from 1.
+     */
+    protected void prepareStep(long step, double learningRate) {
+    }
+    
+    /**
+     * The per-weight state arrays made by allocate(), so that getState() and 
+     * setState() can copy them. Optimizers that keep no state return none.
+     */
+    protected double[][] stateArrays() {
+        return new double[0][];
+    }
+    
+    /**
+     * The number of values copied by getState() and setState().
+     */
+    public final int stateSize() {
+        int size = 0;
+        for (double[] state : stateArrays())
+            size += state.length;
+        return size;
+    }
+    
+    /**
+     * Copies the per-weight state into dest, one array after another. 
+     * Together with steps(), this is everything needed to carry on later 
+     * exactly where this Optimizer left off.
+     */
+    public final void getState(double[] dest) {
+        int offset = 0;
+        for (double[] state : stateArrays()) {
+            System.arraycopy(state, 0, dest, offset, state.length);
+            offset += state.length;
+        }
+    }
+    
+    /**
+     * Restores state saved by getState(), along with the number of steps 
+     * taken, which the learning rate schedule depends on.
+     */
+    public final void setState(double[] src, long steps) {
+        if (src.length < stateSize())
+            throw new IllegalArgumentException("Need " + stateSize() + " state values.");
+        int offset = 0;
+        for (double[] state : stateArrays()) {
+            System.arraycopy(src, offset, state, 0, state.length);
+            offset += state.length;
+        }
+        _steps = steps;
+    }
+    
+    /**
+     * The scheduled learning rate for the current step.
+     */
+    public double learningRate() {
+        return _learningRate;
+    }
+    
+    /**
+     * The number of steps taken so far.
+     */
+    public long steps() {
+        return _steps;
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2017 Chuck Wolber
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal 
+ * in the Software without restriction, including without limitation the rights 
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell 
+ * copies of the Software, and to permit persons to whom the Software is 
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in 
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package bdl.optimizers;
+
+/**
+ * Divides each weight's step by a running root mean square of its recent 
+ * ∂E/∂w, so every weight moves at roughly the learning rate no matter how 
+ * steep its part of the error surface is.
+ * 
+ * @author chuckwolber
+ */
+public class RMSPropOptimizer extends Optimizer
+{
+    private final double _decay;
+    private final double _epsilon;
+    private double _rate;
+    private double[] _meanSquare;
+    
+    public RMSPropOptimizer() {
+        this(0.9, 1e-8);
+    }
+    
+    public RMSPropOptimizer(double decay, double epsilon) {
+        _decay = decay;
+        _epsilon = epsilon;
+    }
+    
+    @Override
+    protected void allocate(int parameters) {
+        _meanSquare = new double[parameters];
+    }
+    
+    @Override
+    protected double[][] stateArrays() {
+        return new double[][] {_meanSquare};
+    }
+    
+    @Override
+    protected void prepareStep(long step, double learningRate) {
+        _rate = learningRate;
+    }
+    
+    @Override
+    public double delta(int index, double gradient) {
+        double s = _decay * _meanSquare[index] + (1.0 - _decay) * gradient * gradient;
+        _meanSquare[index] = s;
+        return _rate * gradient / (Math.sqrt(s) + _epsilon);
+    }
+}